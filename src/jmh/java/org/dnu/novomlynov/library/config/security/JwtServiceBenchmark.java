@@ -0,0 +1,63 @@
+package org.dnu.novomlynov.library.config.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private LibUserDetails user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtConfigurationProperties jwtProperties = new JwtConfigurationProperties();
+        jwtProperties.setSecret("mySecretKey123456789012345678901234567890");
+        jwtProperties.setExpiration(86400000);
+        jwtService = new JwtService(jwtProperties);
+
+        user = LibUserDetails.builder()
+                .username("admin")
+                .password("hash")
+                .authorities(List.of(
+                        new SimpleGrantedAuthority("ROLE_LIBRARIAN"),
+                        new SimpleGrantedAuthority("ROLE_BOOK_ADMIN"),
+                        new SimpleGrantedAuthority("ROLE_USER_ADMIN")))
+                .enabled(true)
+                .build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtService.validateToken(token);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+}
@@ -0,0 +1,53 @@
+package org.dnu.novomlynov.library.config.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class PasswordEncoderBenchmark {
+
+    private BoundedPasswordEncoder passwordEncoder;
+    private String passwordHash;
+
+    // Same encoder as the application with default settings, including the hop to the hashing pool
+    @Setup
+    public void setUp() {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(properties.getStrength()),
+                properties.getParallelism(), properties.getQueueCapacity(), new SimpleMeterRegistry());
+        passwordHash = passwordEncoder.encode("admin");
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordEncoder.close();
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode("admin");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches("admin", passwordHash);
+    }
+}
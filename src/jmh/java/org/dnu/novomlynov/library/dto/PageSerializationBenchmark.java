@@ -0,0 +1,72 @@
+package org.dnu.novomlynov.library.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class PageSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<BookDto> page;
+
+    @Setup
+    public void setUp() {
+        // Same defaults Spring MVC applies to the controllers' responses
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<BookDto> books = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            books.add(BookDto.builder()
+                    .id(id)
+                    .title("Book " + id)
+                    .isbn("978000000" + id)
+                    .totalCopies(5)
+                    .availableCopies(3)
+                    .authorIds(Set.of(id, id + 1))
+                    .categoryIds(Set.of(id))
+                    .authors(Set.of(
+                            AuthorDto.builder().id(id).name("Author " + id).build(),
+                            AuthorDto.builder().id(id + 1).name("Author " + (id + 1)).build()))
+                    .categories(Set.of(CategoryDto.builder().id(id).name("Category " + id).build()))
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+        page = new PageImpl<>(books, PageRequest.of(0, pageSize), pageSize * 10L);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,86 @@
+package org.dnu.novomlynov.library.service.impl;
+
+import org.dnu.novomlynov.library.dto.BookDto;
+import org.dnu.novomlynov.library.dto.BookLendingDto;
+import org.dnu.novomlynov.library.model.Author;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.BookLending;
+import org.dnu.novomlynov.library.model.Category;
+import org.dnu.novomlynov.library.model.LendingStatus;
+import org.dnu.novomlynov.library.model.Subscriber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class MapToDtoBenchmark {
+
+    private Book book;
+    private BookLending bookLending;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        book = Book.builder()
+                .id(1L)
+                .title("Harry Potter and the Philosopher's Stone")
+                .isbn("9780747532743")
+                .publicationDate(LocalDate.of(1997, 6, 26))
+                .totalCopies(5)
+                .availableCopies(3)
+                .authors(Set.of(
+                        Author.builder().id(1L).name("J.K. Rowling").build(),
+                        Author.builder().id(2L).name("Mary GrandPré").build()))
+                .categories(Set.of(
+                        Category.builder().id(1L).name("Fantasy").build(),
+                        Category.builder().id(2L).name("Children").build(),
+                        Category.builder().id(3L).name("Adventure").build()))
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        bookLending = BookLending.builder()
+                .id(1L)
+                .book(book)
+                .subscriber(Subscriber.builder()
+                        .id(1L)
+                        .name("John Doe")
+                        .email("john@example.com")
+                        .libraryCardNumber("LC001")
+                        .active(true)
+                        .build())
+                .issueDate(LocalDate.now())
+                .dueDate(LocalDate.now().plusDays(14))
+                .status(LendingStatus.ISSUED)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    // The mappers are static, so the services and their dependencies are never built
+    @Benchmark
+    public BookDto bookMapToDto() {
+        return BookServiceImpl.mapToDto(book);
+    }
+
+    @Benchmark
+    public BookLendingDto bookLendingMapToDto() {
+        return BookLendingServiceImpl.mapToDto(bookLending);
+    }
+}
@@ -0,0 +1,16 @@
+package org.dnu.novomlynov.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "lending")
+@Component
+@lombok.Data
+public class LendingConfigurationProperties {
+    private String overdueSweepCron = "0 */5 * * * *";
+    private int overdueSweepBatchSize = 1000;
+    // Lendings a subscriber may have open at once
+    private int maxActiveLoans = 10;
+    private String availabilityReconciliationCron = "0 30 3 * * *";
+    private int availabilityReconciliationBatchSize = 1000;
+}
@@ -0,0 +1,46 @@
+package org.dnu.novomlynov.library.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.dnu.novomlynov.library.model.LendingStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Counts lendings moving between statuses as library.lending.transitions, tagged with the status they
+ * left and the one they entered. A new lending leaves the status "none".
+ * Inside a transaction the count waits for the commit, so rolled back transitions are never counted.
+ */
+@Component
+@RequiredArgsConstructor
+public class LendingMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public void transition(LendingStatus from, LendingStatus to) {
+        transition(from, to, 1);
+    }
+
+    public void transition(LendingStatus from, LendingStatus to, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter counter = Counter.builder("library.lending.transitions")
+                .description("Lendings moved from one status to another")
+                .tag("from", from == null ? "none" : from.name())
+                .tag("to", to.name())
+                .register(meterRegistry);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.increment(count);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.increment(count);
+            }
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package org.dnu.novomlynov.library.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Meters Spring Boot does not register on its own. The hikaricp.* meters give the pool counts, this adds
+ * the share of the pool in use, which is what alerting cares about.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder connectionPoolSaturation(DataSource dataSource) {
+        return registry -> {
+            HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class,
+                    HikariDataSource.class);
+            if (hikari == null) {
+                return;
+            }
+            Gauge.builder("library.datasource.saturation", hikari, MetricsConfig::saturation)
+                    .description("Share of the connection pool in use, 1 means every connection is taken")
+                    .tag("pool", hikari.getPoolName())
+                    .register(registry);
+        };
+    }
+
+    private static double saturation(HikariDataSource hikari) {
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null) {
+            return 0;
+        }
+        return (double) pool.getActiveConnections() / hikari.getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,61 @@
+package org.dnu.novomlynov.library.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Active with spring.threads.virtual.enabled=true (the virtual-threads profile). Spring Boot then serves
+ * requests and runs @Async and @Scheduled tasks on virtual threads, this adds what the application needs
+ * on top of that.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@EnableConfigurationProperties(VirtualThreadsProperties.class)
+public class VirtualThreadsConfig {
+
+    // Tomcat no longer caps the number of request threads, the pool size becomes the limit
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(
+            ObjectProvider<VirtualThreadsProperties> properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // The pool may already be wrapped, for example by the slow query log
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+                HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class,
+                        HikariDataSource.class);
+                if (hikari == null) {
+                    return bean;
+                }
+                ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource(dataSource,
+                        hikari.getMaximumPoolSize(), properties.getObject().getConnectionWaitTimeout());
+                Gauge.builder("library.datasource.waiting", limited, ConnectionLimitingDataSource::getWaitingThreads)
+                        .description("Threads waiting for a database connection")
+                        .register(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+                return limited;
+            }
+        };
+    }
+
+    @Bean(initMethod = "start")
+    public PinnedVirtualThreadMonitor pinnedVirtualThreadMonitor(VirtualThreadsProperties properties,
+                                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        return new PinnedVirtualThreadMonitor(properties.getPinnedThreshold(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
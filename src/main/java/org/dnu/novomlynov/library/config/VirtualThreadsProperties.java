@@ -0,0 +1,14 @@
+package org.dnu.novomlynov.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "virtual-threads")
+@lombok.Data
+public class VirtualThreadsProperties {
+    // How long a thread may wait for a database connection before the request fails
+    private Duration connectionWaitTimeout = Duration.ofSeconds(5);
+    // Pinning shorter than this is not reported
+    private Duration pinnedThreshold = Duration.ofMillis(20);
+}
@@ -3,10 +3,16 @@ package org.dnu.novomlynov.library.config.security;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "jwt")
 @Component
 @lombok.Data
 public class JwtConfigurationProperties {
     private String secret;
     private long expiration;
+    // Build the principal from signed claims only, without loading the user
+    private boolean stateless;
+    private Duration principalCacheTtl = Duration.ofMinutes(5);
+    private long principalCacheMaxSize = 10_000;
 }
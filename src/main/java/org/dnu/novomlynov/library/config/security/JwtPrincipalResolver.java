@@ -0,0 +1,100 @@
+package org.dnu.novomlynov.library.config.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.dnu.novomlynov.library.service.UserAccountChangedEvent;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@Slf4j
+public class JwtPrincipalResolver {
+    private final JwtService jwtService;
+    private final LibUserDetailsService userDetailsService;
+    private final JwtRevocationList revocationList;
+    private final boolean stateless;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtPrincipalResolver(JwtService jwtService,
+                                LibUserDetailsService userDetailsService,
+                                JwtRevocationList revocationList,
+                                JwtConfigurationProperties jwtProperties) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.revocationList = revocationList;
+        this.stateless = jwtProperties.isStateless();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(jwtProperties.getPrincipalCacheMaxSize())
+                .expireAfterWrite(jwtProperties.getPrincipalCacheTtl())
+                .build();
+    }
+
+    public Optional<UserDetails> resolve(String token) {
+        if (stateless) {
+            return jwtService.parseClaims(token).flatMap(this::principalFromClaims);
+        }
+
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(Instant.now())) {
+                return Optional.of(cached.principal());
+            }
+            verifiedTokens.invalidate(token);
+            return Optional.empty();
+        }
+
+        Optional<Claims> claims = jwtService.parseClaims(token);
+        if (claims.isEmpty() || claims.get().getSubject() == null) {
+            return Optional.empty();
+        }
+
+        final UserDetails principal;
+        try {
+            principal = userDetailsService.loadUserByUsername(claims.get().getSubject());
+        } catch (UsernameNotFoundException e) {
+            log.warn("JWT subject no longer exists: {}", e.getMessage());
+            return Optional.empty();
+        }
+        if (!principal.isEnabled()) {
+            return Optional.empty();
+        }
+
+        verifiedTokens.put(token, new VerifiedToken(principal, claims.get().getExpiration().toInstant()));
+        return Optional.of(principal);
+    }
+
+    private Optional<UserDetails> principalFromClaims(Claims claims) {
+        String login = claims.getSubject();
+        // Tokens issued before the active claim existed cannot be trusted without a lookup
+        if (login == null || !Boolean.TRUE.equals(claims.get("active", Boolean.class))
+                || revocationList.isRevoked(login, claims.getIssuedAt())) {
+            return Optional.empty();
+        }
+
+        List<?> roles = claims.get("roles", List.class);
+        return Optional.of(LibUserDetails.builder()
+                .username(login)
+                .enabled(true)
+                .authorities(roles == null ? List.of() : roles.stream()
+                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                        .toList())
+                .build());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        verifiedTokens.asMap().values().removeIf(token -> token.principal().getUsername().equals(event.login()));
+    }
+
+    private record VerifiedToken(UserDetails principal, Instant expiresAt) {
+    }
+}
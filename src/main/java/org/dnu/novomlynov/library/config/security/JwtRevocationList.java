@@ -0,0 +1,41 @@
+package org.dnu.novomlynov.library.config.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.dnu.novomlynov.library.service.UserAccountChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+@Component
+public class JwtRevocationList {
+    // login -> tokens issued up to this second are no longer accepted
+    private final Cache<String, Instant> revokedBefore;
+
+    public JwtRevocationList(JwtConfigurationProperties jwtProperties) {
+        // Past the token lifetime every revoked token has expired anyway
+        this.revokedBefore = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(jwtProperties.getExpiration()))
+                .build();
+    }
+
+    public void revoke(String login) {
+        revokedBefore.put(login, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    public boolean isRevoked(String login, Date issuedAt) {
+        Instant revokedAt = revokedBefore.getIfPresent(login);
+        return revokedAt != null && (issuedAt == null || !issuedAt.toInstant().isAfter(revokedAt));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        if (event.accessRevoked()) {
+            revoke(event.login());
+        }
+    }
+}
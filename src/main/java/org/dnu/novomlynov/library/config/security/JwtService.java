@@ -3,9 +3,9 @@ package org.dnu.novomlynov.library.config.security;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -15,16 +15,21 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class JwtService {
     private final JwtConfigurationProperties jwtProperties;
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes());
+    private final SecretKey signingKey;
+    private final JwtParser jwtParser;
+
+    public JwtService(JwtConfigurationProperties jwtProperties) {
+        this.jwtProperties = jwtProperties;
+        this.signingKey = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes());
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
     }
 
     public String extractUsername(String token) {
@@ -45,11 +50,19 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return jwtParser.parseSignedClaims(token).getPayload();
+    }
+
+    public Optional<Claims> parseClaims(String token) {
+        try {
+            return Optional.of(extractAllClaims(token));
+        } catch (ExpiredJwtException eje){
+            log.warn("JWT token is expired: {}", eje.getMessage());
+            return Optional.empty();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("JWT token is invalid: {}", e.getMessage());
+            return Optional.empty();
+        }
     }
 
 
@@ -58,6 +71,7 @@ public class JwtService {
         claims.put("roles", userDetails.getAuthorities().stream()
                 .map(authority -> authority.getAuthority().replace("ROLE_", ""))
                 .toList());
+        claims.put("active", userDetails.isEnabled());
         return createToken(claims, userDetails.getUsername());
     }
 
@@ -71,29 +85,18 @@ public class JwtService {
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expiration)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        if(!validateToken(token)){
-            return false;
-        }
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()));
+        return parseClaims(token)
+                .map(claims -> userDetails.getUsername().equals(claims.getSubject()))
+                .orElse(false);
     }
 
     public Boolean validateToken(String token) {
-        try {
-            Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token);
-            return true;
-        } catch (ExpiredJwtException eje){
-            log.warn("JWT token is expired: {}", eje.getMessage());
-            return false;
-        } catch (JwtException | IllegalArgumentException e) {
-            log.error("JWT token is invalid: {}", e.getMessage());
-            return false;
-        }
+        return parseClaims(token).isPresent();
     }
 }
 
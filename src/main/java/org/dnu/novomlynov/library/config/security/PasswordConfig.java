@@ -1,15 +1,26 @@
 package org.dnu.novomlynov.library.config.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
+@EnableConfigurationProperties(PasswordHashingProperties.class)
 public class PasswordConfig {
 
+    // BCrypt is CPU bound, it runs on its own bounded pool instead of the request threads
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(properties.getStrength()),
+                properties.getParallelism(),
+                properties.getQueueCapacity(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
-}
\ No newline at end of file
+}
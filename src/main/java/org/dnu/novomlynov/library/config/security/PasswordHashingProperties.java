@@ -0,0 +1,14 @@
+package org.dnu.novomlynov.library.config.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "password-hashing")
+@lombok.Data
+public class PasswordHashingProperties {
+    // BCrypt log rounds of new hashes, existing hashes keep the cost they were created with
+    private int strength = 10;
+    // Threads hashing at the same time, at most one per core is useful
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    // Hashes waiting for a thread, beyond this requests are rejected with 429
+    private int queueCapacity = 64;
+}
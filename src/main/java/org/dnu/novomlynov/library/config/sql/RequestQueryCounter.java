@@ -0,0 +1,29 @@
+package org.dnu.novomlynov.library.config.sql;
+
+/**
+ * Counts the statements the current request thread has run. Work the request hands to another thread,
+ * such as a streamed response body, is not counted.
+ */
+final class RequestQueryCounter {
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    private RequestQueryCounter() {
+    }
+
+    static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    static void increment() {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
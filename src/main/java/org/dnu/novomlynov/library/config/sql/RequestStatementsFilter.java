@@ -0,0 +1,52 @@
+package org.dnu.novomlynov.library.config.sql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records the statements every request ran in library.http.statements, tagged with the method and the
+ * endpoint pattern, and warns about requests over the budget, usually a lazy association loaded in a loop.
+ */
+@Slf4j
+class RequestStatementsFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+    private final int queryBudget;
+
+    RequestStatementsFilter(MeterRegistry meterRegistry, int queryBudget) {
+        this.meterRegistry = meterRegistry;
+        this.queryBudget = queryBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestQueryCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = RequestQueryCounter.stop();
+            // Unmatched requests share one tag value, so scanners cannot blow up the number of series
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("library.http.statements")
+                    .description("JDBC statements run per HTTP request")
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .register(meterRegistry)
+                    .record(statements);
+            if (statements > queryBudget) {
+                log.warn("{} {} ran {} statements, over the budget of {}", request.getMethod(),
+                        request.getRequestURI(), statements, queryBudget);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.dnu.novomlynov.library.config.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.dnu.novomlynov.library.config.ServiceMetricsAspect;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Logs statements slower than the threshold as warnings and a sample of the others at info level, each
+ * with its bind parameters and the application method that ran it.
+ */
+@Slf4j
+class SlowQueryListener implements QueryExecutionListener {
+    private static final String APPLICATION_PACKAGE = "org.dnu.novomlynov.library.";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final long slowQueryThresholdMillis;
+    private final double sampleRate;
+
+    SlowQueryListener(SqlObservabilityProperties properties) {
+        this.slowQueryThresholdMillis = properties.getSlowQueryThreshold().toMillis();
+        this.sampleRate = properties.getSampleRate();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = execInfo.getElapsedTime();
+        if (elapsed >= slowQueryThresholdMillis) {
+            log.warn("Slow query took {} ms in {}: {}", elapsed, caller(), describe(execInfo, queryInfoList));
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info("Sampled query took {} ms in {}: {}", elapsed, caller(), describe(execInfo, queryInfoList));
+        }
+    }
+
+    // The innermost application frame, below it are only Spring Data, Hibernate and JDBC frames. A flush
+    // at commit runs after the service method returned, it is attributed to the caller of the service
+    private static String caller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !frame.getClassName().startsWith(SlowQueryListener.class.getName())
+                        && !frame.getClassName().equals(ServiceMetricsAspect.class.getName())
+                        && !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+
+    // Parameters are recorded in the order they were set, named ones go last
+    private static int parameterIndex(ParameterSetOperation operation) {
+        return operation.getArgs()[0] instanceof Integer index ? index : Integer.MAX_VALUE;
+    }
+
+    // For a batch only the first set of parameters is shown
+    private static String describe(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream()
+                .map(query -> {
+                    String sql = query.getQuery();
+                    List<List<ParameterSetOperation>> parameters = query.getParametersList();
+                    if (parameters.isEmpty() || parameters.get(0).isEmpty()) {
+                        return sql;
+                    }
+                    String first = parameters.get(0).stream()
+                            .sorted(Comparator.comparingInt(SlowQueryListener::parameterIndex))
+                            .map(operation -> ParameterSetOperation.isSetNullParameterOperation(operation)
+                                    ? "null" : String.valueOf(operation.getArgs()[1]))
+                            .collect(Collectors.joining(", ", "[", "]"));
+                    return sql + " " + first + (execInfo.isBatch()
+                            ? " (batch of " + execInfo.getBatchSize() + ")" : "");
+                })
+                .collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,56 @@
+package org.dnu.novomlynov.library.config.sql;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Counts the statements of every request, see {@link RequestStatementsFilter}. With
+ * sql-observability.enabled=true, set by the root application-prod.properties that the Dockerfile deploys as
+ * ./application.properties, slow and sampled statements are logged as well, in place of spring.jpa.show-sql.
+ */
+@Configuration
+@EnableConfigurationProperties(SqlObservabilityProperties.class)
+public class SqlObservabilityConfig {
+
+    @Bean
+    public static BeanPostProcessor statementListenerDataSourcePostProcessor(
+            ObjectProvider<SqlObservabilityProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new StatementCountingListener());
+                if (properties.getObject().isEnabled()) {
+                    builder.listener(new SlowQueryListener(properties.getObject()));
+                }
+                return builder.build();
+            }
+        };
+    }
+
+    // Ahead of Spring Security, so the statements loading the authenticated user are counted too
+    @Bean
+    public FilterRegistrationBean<RequestStatementsFilter> requestStatementsFilter(
+            SqlObservabilityProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        FilterRegistrationBean<RequestStatementsFilter> registration = new FilterRegistrationBean<>(
+                new RequestStatementsFilter(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                        properties.getQueryBudget()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,18 @@
+package org.dnu.novomlynov.library.config.sql;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "sql-observability")
+@lombok.Data
+public class SqlObservabilityProperties {
+    // Logs slow and sampled statements, statements are counted per request either way
+    private boolean enabled;
+    // Statements running at least this long are always logged
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+    // Share of the faster statements that is logged as well, between 0 and 1
+    private double sampleRate = 0.01;
+    // Requests running more statements than this are logged
+    private int queryBudget = 50;
+}
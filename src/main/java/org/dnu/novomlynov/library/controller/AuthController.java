@@ -9,6 +9,7 @@ import org.dnu.novomlynov.library.config.security.JwtService;
 import org.dnu.novomlynov.library.dto.LoginRequest;
 import org.dnu.novomlynov.library.dto.LoginResponse;
 import org.dnu.novomlynov.library.dto.UserDto;
+import org.dnu.novomlynov.library.exception.PasswordHashingRejectedException;
 import org.dnu.novomlynov.library.repository.UserRepository;
 import org.dnu.novomlynov.library.service.AuthService;
 import org.springframework.http.HttpStatus;
@@ -45,6 +46,9 @@ public class AuthController {
             String jwt = jwtService.generateToken(user);
 
             return ResponseEntity.ok(new LoginResponse(jwt));
+        } catch (PasswordHashingRejectedException e) {
+            // Not a failed login, the client should retry later
+            throw e;
         } catch (Exception e) {
             log.warn("Exception during login: {}", e.getMessage(), e);
             return ResponseEntity
@@ -3,17 +3,21 @@ package org.dnu.novomlynov.library.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.dnu.novomlynov.library.dto.BookDto;
+import org.dnu.novomlynov.library.dto.BookImportReport;
+import org.dnu.novomlynov.library.dto.CursorPage;
+import org.dnu.novomlynov.library.service.BookImportService;
 import org.dnu.novomlynov.library.service.BookService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/api/books")
@@ -21,6 +25,7 @@ import java.util.List;
 public class BookController {
 
     private final BookService bookService;
+    private final BookImportService bookImportService;
 
     @PostMapping
     @PreAuthorize("hasRole('BOOK_ADMIN')")
@@ -28,6 +33,13 @@ public class BookController {
         return new ResponseEntity<>(bookService.createBook(bookDto), HttpStatus.CREATED);
     }
 
+    // Newline delimited JSON, one book per line, read straight from the request body
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    @PreAuthorize("hasRole('BOOK_ADMIN')")
+    public ResponseEntity<BookImportReport> importBooks(InputStream body) {
+        return ResponseEntity.ok(bookImportService.importBooks(body));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<BookDto> getBookById(@PathVariable Long id) {
         return ResponseEntity.ok(bookService.getBookById(id));
@@ -53,14 +65,28 @@ public class BookController {
         return ResponseEntity.ok(bookService.getAllBooks(pageable));
     }
 
+    // Keyset pagination: no total count, pass nextCursor back to continue after the last row
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<BookDto>> scrollBooks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortOrder) {
+
+        Sort sort = sortOrder.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        return ResponseEntity.ok(bookService.scrollBooks(cursor, size, sort));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<Page<BookDto>> searchBooks(
+    public ResponseEntity<CursorPage<BookDto>> searchBooks(
             @RequestParam String query,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "100") int size) {
 
-        Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(bookService.searchBooks(query, pageable));
+        return ResponseEntity.ok(bookService.searchBooks(query, cursor, size));
     }
 
     @GetMapping("/by-author/{authorId}")
@@ -113,7 +139,19 @@ public class BookController {
     }
 
     @GetMapping("/available")
-    public ResponseEntity<List<BookDto>> getAvailableBooks() {
-        return ResponseEntity.ok(bookService.getAvailableBooks());
+    public ResponseEntity<Page<BookDto>> getAvailableBooks(
+            @RequestParam(required = false) Long authorId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortOrder) {
+
+        Sort sort = sortOrder.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        Pageable pageable = PageRequest.of(page, size, sort);
+        return ResponseEntity.ok(bookService.getAvailableBooks(authorId, categoryId, pageable));
     }
 }
\ No newline at end of file
@@ -2,19 +2,28 @@ package org.dnu.novomlynov.library.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.dnu.novomlynov.library.dto.BatchIssueRequest;
+import org.dnu.novomlynov.library.dto.BatchLendingResult;
+import org.dnu.novomlynov.library.dto.BatchReturnRequest;
 import org.dnu.novomlynov.library.dto.BookLendingDto;
+import org.dnu.novomlynov.library.dto.CursorPage;
 import org.dnu.novomlynov.library.model.LendingStatus;
 import org.dnu.novomlynov.library.service.BookLendingService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/lendings")
@@ -33,6 +42,17 @@ public class BookLendingController {
         return ResponseEntity.ok(bookLendingService.returnBook(id));
     }
 
+    // Items fail on their own, the response lists the outcome of every requested book
+    @PostMapping("/issue/batch")
+    public ResponseEntity<BatchLendingResult> issueBooks(@Valid @RequestBody BatchIssueRequest request) {
+        return ResponseEntity.ok(bookLendingService.issueBooks(request));
+    }
+
+    @PutMapping("/return/batch")
+    public ResponseEntity<BatchLendingResult> returnBooks(@Valid @RequestBody BatchReturnRequest request) {
+        return ResponseEntity.ok(bookLendingService.returnBooks(request));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<BookLendingDto> getLendingById(@PathVariable Long id) {
         return ResponseEntity.ok(bookLendingService.getLendingById(id));
@@ -53,6 +73,22 @@ public class BookLendingController {
         return ResponseEntity.ok(bookLendingService.getAllLendings(pageable));
     }
 
+    // Keyset pagination: no total count, pass nextCursor back to continue after the last row
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<BookLendingDto>> scrollLendings(
+            @RequestParam(required = false) LendingStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortOrder) {
+
+        Sort sort = sortOrder.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        return ResponseEntity.ok(bookLendingService.scrollLendings(status, cursor, size, sort));
+    }
+
     @GetMapping("/status/{status}")
     public ResponseEntity<Page<BookLendingDto>> getLendingsByStatus(
             @PathVariable LendingStatus status,
@@ -83,9 +119,32 @@ public class BookLendingController {
         return ResponseEntity.ok(bookLendingService.getCurrentLendingsForSubscriber(subscriberId, pageable));
     }
 
+    // Chunked NDJSON of every lending issued in [from, to), streamed straight from a database cursor
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportLendings(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        StreamingResponseBody body = out -> bookLendingService.exportLendings(from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("lendings-" + from + "-" + to + ".ndjson")
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
     @GetMapping("/overdue")
-    public ResponseEntity<List<BookLendingDto>> getOverdueBooks() {
-        return ResponseEntity.ok(bookLendingService.getOverdueBooks());
+    public ResponseEntity<Page<BookLendingDto>> getOverdueBooks(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+
+        Pageable pageable = PageRequest.of(page, size, Sort.by("dueDate", "id"));
+        return ResponseEntity.ok(bookLendingService.getOverdueBooks(pageable));
     }
 
     @DeleteMapping("/{id}")
@@ -2,6 +2,7 @@ package org.dnu.novomlynov.library.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.dnu.novomlynov.library.dto.CursorPage;
 import org.dnu.novomlynov.library.dto.SubscriberDto;
 import org.dnu.novomlynov.library.service.SubscriberService;
 import org.springframework.data.domain.Page;
@@ -52,6 +53,21 @@ public class SubscriberController {
         return ResponseEntity.ok(subscriberService.getAllSubscribers(pageable));
     }
 
+    // Keyset pagination: no total count, pass nextCursor back to continue after the last row
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<SubscriberDto>> scrollSubscribers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortOrder) {
+
+        Sort sort = sortOrder.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        return ResponseEntity.ok(subscriberService.scrollSubscribers(cursor, size, sort));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Page<SubscriberDto>> searchSubscribersByName(
             @RequestParam String name,
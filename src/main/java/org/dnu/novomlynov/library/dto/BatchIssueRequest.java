@@ -0,0 +1,32 @@
+package org.dnu.novomlynov.library.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchIssueRequest {
+    @NotNull(message = "Subscriber ID is required")
+    private Long subscriberId;
+
+    // One JDBC batch of lending inserts
+    @NotEmpty(message = "Book IDs are required")
+    @Size(max = 50, message = "At most 50 books can be issued at once")
+    private List<@NotNull(message = "Book ID is required") Long> bookIds;
+
+    // Today when not set
+    private LocalDate issueDate;
+
+    @NotNull(message = "Due date is required")
+    private LocalDate dueDate;
+}
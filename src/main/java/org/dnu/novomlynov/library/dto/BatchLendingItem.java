@@ -0,0 +1,23 @@
+package org.dnu.novomlynov.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLendingItem {
+    // The requested book ID for an issue, the lending ID for a return
+    private Long id;
+
+    private boolean success;
+
+    // Set when the item succeeded
+    private BookLendingDto lending;
+
+    // Set when the item failed
+    private String error;
+}
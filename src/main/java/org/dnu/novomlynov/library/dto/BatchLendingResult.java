@@ -0,0 +1,23 @@
+package org.dnu.novomlynov.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLendingResult {
+    private int succeeded;
+
+    private int failed;
+
+    // One item per requested ID, in request order
+    @Builder.Default
+    private List<BatchLendingItem> items = new ArrayList<>();
+}
@@ -0,0 +1,21 @@
+package org.dnu.novomlynov.library.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchReturnRequest {
+    @NotEmpty(message = "Lending IDs are required")
+    @Size(max = 50, message = "At most 50 books can be returned at once")
+    private List<@NotNull(message = "Lending ID is required") Long> lendingIds;
+}
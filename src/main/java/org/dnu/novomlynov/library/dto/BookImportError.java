@@ -0,0 +1,18 @@
+package org.dnu.novomlynov.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportError {
+    private long line;
+
+    private String isbn;
+
+    private String message;
+}
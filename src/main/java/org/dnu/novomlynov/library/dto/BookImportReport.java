@@ -0,0 +1,29 @@
+package org.dnu.novomlynov.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportReport {
+    private long processed;
+
+    private long inserted;
+
+    private long updated;
+
+    private long failed;
+
+    @Builder.Default
+    private List<BookImportError> errors = new ArrayList<>();
+
+    // Set when more rows failed than are listed in errors
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,31 @@
+package org.dnu.novomlynov.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// One line of a bulk import, authors and categories are referenced by name
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportRow {
+    private String title;
+
+    private String isbn;
+
+    private LocalDate publicationDate;
+
+    private Integer totalCopies;
+
+    @Builder.Default
+    private List<String> authors = new ArrayList<>();
+
+    @Builder.Default
+    private List<String> categories = new ArrayList<>();
+}
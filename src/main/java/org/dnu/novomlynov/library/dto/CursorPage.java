@@ -0,0 +1,25 @@
+package org.dnu.novomlynov.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    @Builder.Default
+    private List<T> content = new ArrayList<>();
+
+    private int size;
+
+    private boolean hasNext;
+
+    // Opaque token to pass back as "cursor" to get the next slice, null on the last one
+    private String nextCursor;
+}
@@ -30,6 +30,9 @@ public class SubscriberDto {
 
     private boolean active;
 
+    // Read only, lendings not returned yet
+    private int activeLoans;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package org.dnu.novomlynov.library.job;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.dnu.novomlynov.library.config.LendingConfigurationProperties;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.CounterDrift;
+import org.dnu.novomlynov.library.repository.SubscriberRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Recomputes the available copies of every book and the active loans of every subscriber from the open
+ * lendings and corrects the counters where they drifted. Corrected rows are counted in
+ * library.books.availability.corrected and library.subscribers.loans.corrected, what they were off by in
+ * library.books.availability.drift and library.subscribers.loans.drift.
+ */
+@Component
+@Slf4j
+public class AvailabilityReconciler {
+
+    private final BookRepository bookRepository;
+    private final SubscriberRepository subscriberRepository;
+    private final LendingConfigurationProperties lendingConfigurationProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter corrected;
+    private final Counter drift;
+    private final Counter correctedSubscribers;
+    private final Counter loansDrift;
+
+    public AvailabilityReconciler(BookRepository bookRepository, SubscriberRepository subscriberRepository,
+                                  LendingConfigurationProperties lendingConfigurationProperties,
+                                  TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        this.subscriberRepository = subscriberRepository;
+        this.lendingConfigurationProperties = lendingConfigurationProperties;
+        this.transactionTemplate = transactionTemplate;
+        this.corrected = Counter.builder("library.books.availability.corrected")
+                .description("Books whose available copies did not match their open lendings")
+                .register(meterRegistry);
+        this.drift = Counter.builder("library.books.availability.drift")
+                .description("Copies the available copies counters were off by")
+                .baseUnit("copies")
+                .register(meterRegistry);
+        this.correctedSubscribers = Counter.builder("library.subscribers.loans.corrected")
+                .description("Subscribers whose active loans did not match their open lendings")
+                .register(meterRegistry);
+        this.loansDrift = Counter.builder("library.subscribers.loans.drift")
+                .description("Loans the active loans counters were off by")
+                .baseUnit("loans")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${lending.availability-reconciliation-cron:0 30 3 * * *}")
+    public void reconcile() {
+        int correctedBooks = reconcileAvailableCopies();
+        if (correctedBooks > 0) {
+            log.warn("Corrected the available copies of {} books", correctedBooks);
+        }
+        int correctedLoans = reconcileActiveLoans();
+        if (correctedLoans > 0) {
+            log.warn("Corrected the active loans of {} subscribers", correctedLoans);
+        }
+    }
+
+    // Every batch commits on its own, so issues and returns wait only for the batch holding their book
+    public int reconcileAvailableCopies() {
+        return reconcile(bookRepository::lockBatchAfter, bookRepository::reconcileAvailableCopies,
+                "Book {} had {} available copies recorded, {} by its open lendings", corrected, drift);
+    }
+
+    // Issues, returns and deletes update the subscriber row before the book, so they wait on this batch
+    public int reconcileActiveLoans() {
+        return reconcile(subscriberRepository::lockBatchAfter, subscriberRepository::reconcileActiveLoans,
+                "Subscriber {} had {} active loans recorded, {} by its open lendings", correctedSubscribers,
+                loansDrift);
+    }
+
+    private int reconcile(BiFunction<Long, Integer, List<Long>> lockBatch,
+                          Function<List<Long>, List<CounterDrift>> correct, String message,
+                          Counter correctedRows, Counter rowsDrift) {
+        int batchSize = lendingConfigurationProperties.getAvailabilityReconciliationBatchSize();
+        long afterId = 0;
+        int total = 0;
+        Batch batch;
+        do {
+            long from = afterId;
+            batch = transactionTemplate.execute(status -> {
+                List<Long> ids = lockBatch.apply(from, batchSize);
+                return new Batch(ids, ids.isEmpty() ? List.of() : correct.apply(ids));
+            });
+            for (CounterDrift row : batch.drift()) {
+                log.info(message, row.getId(), row.getRecorded(), row.getActual());
+                rowsDrift.increment(Math.abs(row.getRecorded() - row.getActual()));
+            }
+            correctedRows.increment(batch.drift().size());
+            total += batch.drift().size();
+            if (!batch.ids().isEmpty()) {
+                afterId = batch.ids().get(batch.ids().size() - 1);
+            }
+        } while (batch.ids().size() == batchSize);
+        return total;
+    }
+
+    private record Batch(List<Long> ids, List<CounterDrift> drift) {
+    }
+}
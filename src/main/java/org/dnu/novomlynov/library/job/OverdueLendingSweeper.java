@@ -0,0 +1,43 @@
+package org.dnu.novomlynov.library.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.dnu.novomlynov.library.config.LendingConfigurationProperties;
+import org.dnu.novomlynov.library.config.LendingMetrics;
+import org.dnu.novomlynov.library.model.LendingStatus;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OverdueLendingSweeper {
+
+    private final BookLendingRepository bookLendingRepository;
+    private final LendingConfigurationProperties lendingConfigurationProperties;
+    private final LendingMetrics lendingMetrics;
+
+    @Scheduled(cron = "${lending.overdue-sweep-cron:0 */5 * * * *}")
+    public void sweep() {
+        int marked = markOverdueLendings(LocalDate.now());
+        if (marked > 0) {
+            log.info("Marked {} lendings as overdue", marked);
+        }
+    }
+
+    // Every batch commits on its own, so row locks are held only for one bounded update at a time
+    public int markOverdueLendings(LocalDate today) {
+        int batchSize = lendingConfigurationProperties.getOverdueSweepBatchSize();
+        int total = 0;
+        int marked;
+        do {
+            marked = bookLendingRepository.markOverdue(today, batchSize);
+            total += marked;
+            lendingMetrics.transition(LendingStatus.ISSUED, LendingStatus.OVERDUE, marked);
+        } while (marked == batchSize);
+        return total;
+    }
+}
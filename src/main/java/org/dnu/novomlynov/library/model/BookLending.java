@@ -22,7 +22,8 @@ import java.time.LocalDateTime;
 public class BookLending {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_lendings_id_seq")
+    @SequenceGenerator(name = "book_lendings_id_seq", sequenceName = "book_lendings_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
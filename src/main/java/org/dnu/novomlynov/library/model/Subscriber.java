@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 public class Subscriber {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "subscribers_id_seq")
+    @SequenceGenerator(name = "subscribers_id_seq", sequenceName = "subscribers_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -39,6 +40,10 @@ public class Subscriber {
     @Column(nullable = false)
     private boolean active;
 
+    // Only ever changed by the conditional updates in SubscriberRepository, never written from the entity
+    @Column(name = "active_loans", insertable = false, updatable = false)
+    private int activeLoans;
+
     @CreatedDate
     @Column(name = "created_at")
     private LocalDateTime createdAt;
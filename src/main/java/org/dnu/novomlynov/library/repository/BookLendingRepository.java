@@ -1,32 +1,101 @@
 package org.dnu.novomlynov.library.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.dnu.novomlynov.library.model.BookLending;
 import org.dnu.novomlynov.library.model.LendingStatus;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookLendingRepository extends JpaRepository<BookLending, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bl FROM BookLending bl WHERE bl.id = :id")
+    Optional<BookLending> findByIdForUpdate(@Param("id") Long id);
+
+    // In ID order, so concurrent batches over the same lendings cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bl FROM BookLending bl WHERE bl.id IN :ids ORDER BY bl.id")
+    List<BookLending> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Pages load the book and subscriber every DTO shows in the same query
+    @Override
+    @EntityGraph(attributePaths = {"book", "subscriber"})
+    Page<BookLending> findAll(Pageable pageable);
+
     List<BookLending> findBySubscriberId(Long subscriberId);
 
+    @EntityGraph(attributePaths = {"book", "subscriber"})
     Page<BookLending> findBySubscriberId(Long subscriberId, Pageable pageable);
 
     List<BookLending> findByBookIdAndStatus(Long bookId, LendingStatus status);
 
+    @EntityGraph(attributePaths = {"book", "subscriber"})
     Page<BookLending> findByStatus(LendingStatus status, Pageable pageable);
 
+    // Keyset scrolling, no count query and no OFFSET
+    @EntityGraph(attributePaths = {"book", "subscriber"})
+    Window<BookLending> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    @EntityGraph(attributePaths = {"book", "subscriber"})
+    Window<BookLending> findByStatus(LendingStatus status, ScrollPosition position, Sort sort, Limit limit);
+
+    @EntityGraph(attributePaths = {"book", "subscriber"})
     Page<BookLending> findBySubscriberIdAndStatus(Long subscriberId, LendingStatus status, Pageable pageable);
 
     @Query("SELECT bl FROM BookLending bl WHERE bl.status = 'ISSUED' AND bl.dueDate < :today")
     List<BookLending> findOverdueBooks(@Param("today") LocalDate today);
 
-    @Query("SELECT COUNT(bl) FROM BookLending bl WHERE bl.subscriber.id = :subscriberId AND bl.status = 'ISSUED'")
+    @EntityGraph(attributePaths = {"book", "subscriber"})
+    Page<BookLending> findBySubscriberIdAndStatusIn(Long subscriberId, Collection<LendingStatus> statuses,
+                                                    Pageable pageable);
+
+    // Lendings the sweeper has already flagged plus those past due it has not reached yet
+    @EntityGraph(attributePaths = {"book", "subscriber"})
+    @Query("SELECT bl FROM BookLending bl WHERE bl.status = 'OVERDUE' OR (bl.status = 'ISSUED' AND bl.dueDate < :today)")
+    Page<BookLending> findOverdue(@Param("today") LocalDate today, Pageable pageable);
+
+    // Naming the touched table keeps Hibernate from dropping every second-level cache region after the update
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_lendings"))
+    @Query(value = "UPDATE book_lendings SET status = 'OVERDUE', updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id IN (SELECT id FROM book_lendings " +
+            "WHERE status = 'ISSUED' AND due_date < :today " +
+            "ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED)",
+            nativeQuery = true)
+    int markOverdue(@Param("today") LocalDate today, @Param("batchSize") int batchSize);
+
+    // Server side cursor for exports: rows arrive in fetch-size batches and are never dirty checked
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT bl FROM BookLending bl JOIN FETCH bl.book JOIN FETCH bl.subscriber " +
+            "WHERE bl.issueDate >= :from AND bl.issueDate < :to ORDER BY bl.id")
+    Stream<BookLending> streamByIssueDate(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT COUNT(bl) FROM BookLending bl WHERE bl.subscriber.id = :subscriberId AND bl.status <> 'RETURNED'")
     long countCurrentBorrowingsForSubscriber(@Param("subscriberId") Long subscriberId);
 }
\ No newline at end of file
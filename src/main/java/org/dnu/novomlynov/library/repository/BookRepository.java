@@ -1,13 +1,23 @@
 package org.dnu.novomlynov.library.repository;
 
+import jakarta.persistence.QueryHint;
 import org.dnu.novomlynov.library.model.Book;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,18 +26,141 @@ public interface BookRepository extends JpaRepository<Book, Long> {
 
     Optional<Book> findByIsbn(String isbn);
 
+    // Keyset scrolling, no count query and no OFFSET
+    Window<Book> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // Seek through the reverse join table indexes, the count never touches books or authors
+    @Query(value = "SELECT b.* FROM books b JOIN book_authors ba ON ba.book_id = b.id " +
+            "WHERE ba.author_id = :authorId ORDER BY b.id",
+            countQuery = "SELECT count(*) FROM book_authors WHERE author_id = :authorId",
+            nativeQuery = true)
+    Page<Book> findByAuthorId(@Param("authorId") Long authorId, Pageable pageable);
+
+    @Query(value = "SELECT b.* FROM books b JOIN book_categories bc ON bc.book_id = b.id " +
+            "WHERE bc.category_id = :categoryId ORDER BY b.id",
+            countQuery = "SELECT count(*) FROM book_categories WHERE category_id = :categoryId",
+            nativeQuery = true)
+    Page<Book> findByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    // Served by the partial index on available books, a null filter matches every book
+    @Query("SELECT b FROM Book b WHERE b.availableCopies > 0 " +
+            "AND (:authorId IS NULL OR EXISTS (SELECT 1 FROM b.authors a WHERE a.id = :authorId)) " +
+            "AND (:categoryId IS NULL OR EXISTS (SELECT 1 FROM b.categories c WHERE c.id = :categoryId))")
+    Page<Book> findAvailable(@Param("authorId") Long authorId,
+                             @Param("categoryId") Long categoryId,
+                             Pageable pageable);
+
     @Query("SELECT b FROM Book b JOIN b.authors a WHERE LOWER(a.name) LIKE LOWER(CONCAT('%', :authorName, '%'))")
     Page<Book> findByAuthorNameContainingIgnoreCase(@Param("authorName") String authorName, Pageable pageable);
 
     @Query("SELECT b FROM Book b JOIN b.categories c WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :categoryName, '%'))")
     Page<Book> findByCategoryNameContainingIgnoreCase(@Param("categoryName") String categoryName, Pageable pageable);
 
-    @Query("SELECT b FROM Book b WHERE " +
-            "LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "b.isbn LIKE CONCAT('%', :searchTerm, '%') OR " +
-            "EXISTS (SELECT 1 FROM b.authors a WHERE LOWER(a.name) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) OR " +
-            "EXISTS (SELECT 1 FROM b.categories c WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Book> search(@Param("searchTerm") String searchTerm, Pageable pageable);
+    @Query(value = "SELECT b.id AS id, ts_rank(b.search_vector, q.query) AS rank " +
+            "FROM books b, books_search_query(:searchTerm) AS q(query) " +
+            "WHERE b.search_vector @@ q.query " +
+            "ORDER BY rank DESC, b.id " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<BookSearchHit> search(@Param("searchTerm") String searchTerm, @Param("limit") int limit);
+
+    // The driver may send the rank as double precision, the cast rounds it back to the exact real it was read as
+    @Query(value = "SELECT hits.id AS id, hits.rank AS rank FROM (" +
+            "SELECT b.id AS id, ts_rank(b.search_vector, q.query) AS rank " +
+            "FROM books b, books_search_query(:searchTerm) AS q(query) " +
+            "WHERE b.search_vector @@ q.query) hits " +
+            "WHERE hits.rank < CAST(:lastRank AS real) " +
+            "OR (hits.rank = CAST(:lastRank AS real) AND hits.id > :lastId) " +
+            "ORDER BY hits.rank DESC, hits.id " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<BookSearchHit> searchAfter(@Param("searchTerm") String searchTerm,
+                                    @Param("lastRank") float lastRank,
+                                    @Param("lastId") Long lastId,
+                                    @Param("limit") int limit);
 
     boolean existsByIsbn(String isbn);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = b.availableCopies - 1, b.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE b.id = :id AND b.availableCopies > 0")
+    int reserveCopy(@Param("id") Long id);
+
+    // Capped instead of filtered, so the row is locked even when the counter has drifted up to the total
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = LEAST(b.availableCopies + 1, b.totalCopies), " +
+            "b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :id")
+    int releaseCopy(@Param("id") Long id);
+
+    // Moves the available copies by as much as the total changes, never below zero, in one statement so that
+    // concurrent issues and returns are not overwritten
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = GREATEST(0, b.availableCopies + :totalCopies - b.totalCopies), " +
+            "b.totalCopies = :totalCopies, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :id")
+    int updateTotalCopies(@Param("id") Long id, @Param("totalCopies") int totalCopies);
+
+    // Takes one copy of each book that has one left and returns the IDs it took a copy of. Rows are locked
+    // in ID order, so concurrent batches over the same books cannot deadlock.
+    // Not @Modifying, Spring Data runs those with executeUpdate, which cannot read the RETURNING rows. Run as
+    // a query, Hibernate flushes the persistence context first and invalidates no cache region. That is safe
+    // because Book rows are not in the second-level cache and callers load the books only after this update
+    @Query(value = "WITH locked AS (SELECT id FROM books WHERE id IN (:ids) ORDER BY id FOR NO KEY UPDATE) " +
+            "UPDATE books b SET available_copies = b.available_copies - 1, updated_at = CURRENT_TIMESTAMP " +
+            "FROM locked WHERE b.id = locked.id AND b.available_copies > 0 " +
+            "RETURNING b.id",
+            nativeQuery = true)
+    List<Long> reserveCopies(@Param("ids") Collection<Long> ids);
+
+    // Gives the given number of copies of each book back, capped at the total like releaseCopy. Naming the
+    // touched table keeps Hibernate from dropping every second-level cache region after the update
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "books"))
+    @Query(value = "WITH locked AS (SELECT id FROM books WHERE id IN (:ids) ORDER BY id FOR NO KEY UPDATE) " +
+            "UPDATE books b SET available_copies = LEAST(b.available_copies + :copies, b.total_copies), " +
+            "updated_at = CURRENT_TIMESTAMP FROM locked WHERE b.id = locked.id",
+            nativeQuery = true)
+    int releaseCopies(@Param("ids") Collection<Long> ids, @Param("copies") int copies);
+
+    // Locks the books in ID order, so updates of subsets that follow cannot deadlock with another batch
+    @Query(value = "SELECT id FROM books WHERE id IN (:ids) ORDER BY id FOR NO KEY UPDATE", nativeQuery = true)
+    List<Long> lockAll(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Issues, returns and deletes update the book row unconditionally, so once it is locked its open lendings
+    // cannot change
+    @Query(value = "SELECT id FROM books WHERE id > :afterId ORDER BY id LIMIT :batchSize FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockBatchAfter(@Param("afterId") long afterId, @Param("batchSize") int batchSize);
+
+    // Run after lockBatchAfter in the same transaction, so that this statement sees every committed lending.
+    // A query rather than @Modifying for the RETURNING rows, like reserveCopies. The reconciler runs it in a
+    // transaction of its own that has not loaded any book, and Book rows are not in the second-level cache
+    @Query(value = "WITH expected AS (" +
+            "SELECT b.id, b.available_copies AS recorded, " +
+            "CAST(GREATEST(b.total_copies - COUNT(bl.id), 0) AS integer) AS actual " +
+            "FROM books b LEFT JOIN book_lendings bl ON bl.book_id = b.id AND bl.status <> 'RETURNED' " +
+            "WHERE b.id IN (:ids) GROUP BY b.id, b.total_copies, b.available_copies) " +
+            "UPDATE books b SET available_copies = e.actual, updated_at = CURRENT_TIMESTAMP " +
+            "FROM expected e WHERE b.id = e.id AND e.recorded <> e.actual " +
+            "RETURNING b.id AS id, e.recorded AS recorded, e.actual AS actual",
+            nativeQuery = true)
+    List<CounterDrift> reconcileAvailableCopies(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.authors WHERE b.id IN :ids")
+    List<Book> fetchAuthors(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.categories WHERE b.id IN :ids")
+    List<Book> fetchCategories(@Param("ids") Collection<Long> ids);
+
+    // Initializes authors and categories of already loaded books in two queries, one per collection
+    default <T extends Collection<Book>> T fetchAssociations(T books) {
+        if (!books.isEmpty()) {
+            List<Long> ids = books.stream().map(Book::getId).toList();
+            fetchAuthors(ids);
+            fetchCategories(ids);
+        }
+        return books;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package org.dnu.novomlynov.library.repository;
+
+public interface BookSearchHit {
+    Long getId();
+
+    Float getRank();
+}
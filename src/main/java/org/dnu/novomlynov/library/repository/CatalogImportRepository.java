@@ -0,0 +1,135 @@
+package org.dnu.novomlynov.library.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.dnu.novomlynov.library.dto.BookImportRow;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Set based SQL for the bulk catalog import, every method costs a fixed number of round trips per chunk
+@Repository
+@RequiredArgsConstructor
+public class CatalogImportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record UpsertedBook(Long id, String isbn, boolean inserted) {
+    }
+
+    // Author names are not unique, the oldest author with a given name is reused
+    public Map<String, Long> resolveAuthors(Collection<String> names) {
+        Map<String, Long> ids = findIdsByName(
+                "SELECT DISTINCT ON (name) name, id FROM authors WHERE name = ANY(?) ORDER BY name, id", names);
+        List<String> missing = names.stream().filter(name -> !ids.containsKey(name)).toList();
+        if (!missing.isEmpty()) {
+            ids.putAll(findIdsByName("INSERT INTO authors (name) SELECT unnest(?) RETURNING name, id", missing));
+        }
+        return ids;
+    }
+
+    public Map<String, Long> resolveCategories(Collection<String> names) {
+        Map<String, Long> ids = findIdsByName("SELECT name, id FROM categories WHERE name = ANY(?)", names);
+        List<String> missing = names.stream().filter(name -> !ids.containsKey(name)).toList();
+        if (!missing.isEmpty()) {
+            // A concurrent import may create the same category, the second lookup picks it up
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO categories (name) SELECT unnest(?) ON CONFLICT (name) DO NOTHING");
+                statement.setArray(1, textArray(statement, missing));
+                return statement;
+            });
+            ids.putAll(findIdsByName("SELECT name, id FROM categories WHERE name = ANY(?)", missing));
+        }
+        return ids;
+    }
+
+    // Inserts new ISBNs and overwrites existing ones in one statement. Changing the total number of copies
+    // moves the available ones by the same amount, like BookService.updateBookCopies does
+    public List<UpsertedBook> upsertBooks(List<BookImportRow> rows) {
+        String sql = "INSERT INTO books (title, isbn, publication_date, total_copies, available_copies) " +
+                "SELECT t.title, t.isbn, t.publication_date::date, t.total_copies, t.total_copies " +
+                "FROM unnest(?, ?, ?, ?) AS t(title, isbn, publication_date, total_copies) " +
+                "ON CONFLICT (isbn) DO UPDATE SET " +
+                "title = EXCLUDED.title, " +
+                "publication_date = EXCLUDED.publication_date, " +
+                "available_copies = GREATEST(0, books.available_copies + EXCLUDED.total_copies - books.total_copies), " +
+                "total_copies = EXCLUDED.total_copies, " +
+                "updated_at = CURRENT_TIMESTAMP " +
+                "RETURNING id, isbn, (xmax = 0) AS inserted";
+        return jdbcTemplate.query(sql, statement -> {
+            int size = rows.size();
+            String[] titles = new String[size];
+            String[] isbns = new String[size];
+            String[] publicationDates = new String[size];
+            Integer[] totalCopies = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                BookImportRow row = rows.get(i);
+                LocalDate publicationDate = row.getPublicationDate();
+                titles[i] = row.getTitle();
+                isbns[i] = row.getIsbn();
+                publicationDates[i] = publicationDate == null ? null : publicationDate.toString();
+                totalCopies[i] = row.getTotalCopies();
+            }
+            statement.setArray(1, statement.getConnection().createArrayOf("varchar", titles));
+            statement.setArray(2, statement.getConnection().createArrayOf("varchar", isbns));
+            statement.setArray(3, statement.getConnection().createArrayOf("varchar", publicationDates));
+            statement.setArray(4, statement.getConnection().createArrayOf("int4", totalCopies));
+        }, (rs, rowNum) -> new UpsertedBook(rs.getLong("id"), rs.getString("isbn"), rs.getBoolean("inserted")));
+    }
+
+    public void deleteLinks(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = bookIds.toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM book_authors WHERE book_id = ANY(?)",
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("int8", ids)));
+        jdbcTemplate.update("DELETE FROM book_categories WHERE book_id = ANY(?)",
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("int8", ids)));
+    }
+
+    public void insertAuthorLinks(Map<Long, Set<Long>> authorIdsByBookId) {
+        insertLinks("INSERT INTO book_authors (book_id, author_id) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                authorIdsByBookId);
+    }
+
+    public void insertCategoryLinks(Map<Long, Set<Long>> categoryIdsByBookId) {
+        insertLinks("INSERT INTO book_categories (book_id, category_id) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                categoryIdsByBookId);
+    }
+
+    private void insertLinks(String sql, Map<Long, Set<Long>> linkedIdsByBookId) {
+        List<Object[]> links = new ArrayList<>();
+        linkedIdsByBookId.forEach((bookId, linkedIds) ->
+                linkedIds.forEach(linkedId -> links.add(new Object[]{bookId, linkedId})));
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, links);
+        }
+    }
+
+    private Map<String, Long> findIdsByName(String sql, Collection<String> names) {
+        Map<String, Long> ids = new HashMap<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.query(sql, statement -> statement.setArray(1, textArray(statement, names)),
+                rs -> {
+                    ids.put(rs.getString("name"), rs.getLong("id"));
+                });
+        return ids;
+    }
+
+    private static Array textArray(PreparedStatement statement, Collection<String> values) throws SQLException {
+        return statement.getConnection().createArrayOf("varchar", values.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,9 @@
+package org.dnu.novomlynov.library.repository;
+
+public interface CounterDrift {
+    Long getId();
+
+    Integer getRecorded();
+
+    Integer getActual();
+}
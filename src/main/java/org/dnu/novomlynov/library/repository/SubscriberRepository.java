@@ -1,11 +1,21 @@
 package org.dnu.novomlynov.library.repository;
 
+import jakarta.persistence.LockModeType;
 import org.dnu.novomlynov.library.model.Subscriber;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +23,9 @@ import java.util.Optional;
 public interface SubscriberRepository extends JpaRepository<Subscriber, Long> {
     Page<Subscriber> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
+    // Keyset scrolling, no count query and no OFFSET
+    Window<Subscriber> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
     Optional<Subscriber> findByLibraryCardNumber(String libraryCardNumber);
 
     List<Subscriber> findByActive(boolean active);
@@ -20,4 +33,39 @@ public interface SubscriberRepository extends JpaRepository<Subscriber, Long> {
     boolean existsByLibraryCardNumber(String libraryCardNumber);
 
     boolean existsByEmail(String email);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Subscriber s WHERE s.id = :id")
+    Optional<Subscriber> findByIdForUpdate(@Param("id") Long id);
+
+    // Takes the loans only if the subscriber stays within the limit, 0 means the limit was reached
+    @Modifying
+    @Query("UPDATE Subscriber s SET s.activeLoans = s.activeLoans + :loans " +
+            "WHERE s.id = :id AND s.activeLoans + :loans <= :limit")
+    int reserveLoans(@Param("id") Long id, @Param("loans") int loans, @Param("limit") int limit);
+
+    // Not clamped, a release below zero violates chk_subscribers_active_loans instead of hiding the drift
+    @Modifying
+    @Query("UPDATE Subscriber s SET s.activeLoans = s.activeLoans - :loans WHERE s.id = :id")
+    int releaseLoans(@Param("id") Long id, @Param("loans") int loans);
+
+    // Lending changes update the subscriber row first, so once it is locked its open lendings cannot change
+    @Query(value = "SELECT id FROM subscribers WHERE id > :afterId ORDER BY id LIMIT :batchSize FOR NO KEY UPDATE",
+            nativeQuery = true)
+    List<Long> lockBatchAfter(@Param("afterId") long afterId, @Param("batchSize") int batchSize);
+
+    // Run after lockBatchAfter in the same transaction, so that this statement sees every committed lending.
+    // A query rather than @Modifying, Spring Data runs those with executeUpdate, which cannot read the RETURNING
+    // rows. The reconciler runs it in a transaction of its own that has not loaded any subscriber, and Subscriber
+    // rows are not in the second-level cache, so no stale copy is left behind
+    @Query(value = "WITH expected AS (" +
+            "SELECT s.id, s.active_loans AS recorded, CAST(COUNT(bl.id) AS integer) AS actual " +
+            "FROM subscribers s " +
+            "LEFT JOIN book_lendings bl ON bl.subscriber_id = s.id AND bl.status <> 'RETURNED' " +
+            "WHERE s.id IN (:ids) GROUP BY s.id, s.active_loans) " +
+            "UPDATE subscribers s SET active_loans = e.actual, updated_at = CURRENT_TIMESTAMP " +
+            "FROM expected e WHERE s.id = e.id AND e.recorded <> e.actual " +
+            "RETURNING s.id AS id, e.recorded AS recorded, e.actual AS actual",
+            nativeQuery = true)
+    List<CounterDrift> reconcileActiveLoans(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package org.dnu.novomlynov.library.service;
+
+import org.dnu.novomlynov.library.dto.BookImportReport;
+
+import java.io.InputStream;
+
+public interface BookImportService {
+    BookImportReport importBooks(InputStream ndjson);
+}
@@ -1,28 +1,46 @@
 package org.dnu.novomlynov.library.service;
 
+import org.dnu.novomlynov.library.dto.BatchIssueRequest;
+import org.dnu.novomlynov.library.dto.BatchLendingResult;
+import org.dnu.novomlynov.library.dto.BatchReturnRequest;
 import org.dnu.novomlynov.library.dto.BookLendingDto;
+import org.dnu.novomlynov.library.dto.CursorPage;
 import org.dnu.novomlynov.library.model.LendingStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 
 public interface BookLendingService {
     BookLendingDto issueBook(BookLendingDto bookLendingDto);
 
     BookLendingDto returnBook(Long id);
 
+    // Issues every listed book it can to one subscriber, the others are reported per item
+    BatchLendingResult issueBooks(BatchIssueRequest request);
+
+    // Returns every listed lending it can, the others are reported per item
+    BatchLendingResult returnBooks(BatchReturnRequest request);
+
     BookLendingDto getLendingById(Long id);
 
     Page<BookLendingDto> getAllLendings(Pageable pageable);
 
+    CursorPage<BookLendingDto> scrollLendings(LendingStatus status, String cursor, int size, Sort sort);
+
     Page<BookLendingDto> getLendingsByStatus(LendingStatus status, Pageable pageable);
 
     Page<BookLendingDto> getLendingsBySubscriber(Long subscriberId, Pageable pageable);
 
     Page<BookLendingDto> getCurrentLendingsForSubscriber(Long subscriberId, Pageable pageable);
 
-    List<BookLendingDto> getOverdueBooks();
+    Page<BookLendingDto> getOverdueBooks(Pageable pageable);
 
     void deleteBookLending(Long id);
+
+    // Writes lendings issued in [from, to) as NDJSON, one lending per line
+    void exportLendings(LocalDate from, LocalDate to, OutputStream out) throws IOException;
 }
\ No newline at end of file
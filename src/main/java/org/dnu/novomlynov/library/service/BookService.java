@@ -1,10 +1,10 @@
 package org.dnu.novomlynov.library.service;
 
 import org.dnu.novomlynov.library.dto.BookDto;
+import org.dnu.novomlynov.library.dto.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-
-import java.util.List;
+import org.springframework.data.domain.Sort;
 
 public interface BookService {
     BookDto createBook(BookDto bookDto);
@@ -15,7 +15,9 @@ public interface BookService {
 
     Page<BookDto> getAllBooks(Pageable pageable);
 
-    Page<BookDto> searchBooks(String searchTerm, Pageable pageable);
+    CursorPage<BookDto> searchBooks(String searchTerm, String cursor, int size);
+
+    CursorPage<BookDto> scrollBooks(String cursor, int size, Sort sort);
 
     Page<BookDto> getBooksByAuthor(Long authorId, Pageable pageable);
 
@@ -29,5 +31,5 @@ public interface BookService {
 
     boolean isBookAvailable(Long id);
 
-    List<BookDto> getAvailableBooks();
+    Page<BookDto> getAvailableBooks(Long authorId, Long categoryId, Pageable pageable);
 }
\ No newline at end of file
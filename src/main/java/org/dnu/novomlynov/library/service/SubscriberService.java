@@ -1,8 +1,10 @@
 package org.dnu.novomlynov.library.service;
 
+import org.dnu.novomlynov.library.dto.CursorPage;
 import org.dnu.novomlynov.library.dto.SubscriberDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 
@@ -15,6 +17,8 @@ public interface SubscriberService {
 
     Page<SubscriberDto> getAllSubscribers(Pageable pageable);
 
+    CursorPage<SubscriberDto> scrollSubscribers(String cursor, int size, Sort sort);
+
     Page<SubscriberDto> searchSubscribersByName(String name, Pageable pageable);
 
     SubscriberDto updateSubscriber(Long id, SubscriberDto subscriberDto);
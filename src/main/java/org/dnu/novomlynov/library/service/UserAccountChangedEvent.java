@@ -0,0 +1,6 @@
+package org.dnu.novomlynov.library.service;
+
+// Published whenever a change to a user account may affect how its tokens authenticate.
+// accessRevoked is set when tokens issued so far must stop working (deactivation, deletion, role change).
+public record UserAccountChangedEvent(String login, boolean accessRevoked) {
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.dnu.novomlynov.library.dto.LoginRequest;
 import org.dnu.novomlynov.library.dto.UserDto;
 import org.dnu.novomlynov.library.exception.AuthenticationException;
+import org.dnu.novomlynov.library.exception.PasswordHashingRejectedException;
 import org.dnu.novomlynov.library.model.User;
 import org.dnu.novomlynov.library.service.AuthService;
 import org.dnu.novomlynov.library.service.UserService;
@@ -30,6 +31,8 @@ public class AuthServiceImpl implements AuthService {
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
             return userService.getUserByLogin(loginRequest.getUsername());
+        } catch (PasswordHashingRejectedException e) {
+            throw e;
         } catch (Exception e) {
             throw new AuthenticationException("Authentication failed: " + e.getMessage());
         }
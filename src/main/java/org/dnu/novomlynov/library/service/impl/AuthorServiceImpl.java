@@ -19,6 +19,7 @@ public class AuthorServiceImpl implements AuthorService {
 
     private final AuthorRepository authorRepository;
     private final BookRepository bookRepository;
+    private final CatalogCacheEvictor catalogCacheEvictor;
 
     @Override
     @Transactional
@@ -64,6 +65,7 @@ public class AuthorServiceImpl implements AuthorService {
         }
 
         Author updatedAuthor = authorRepository.save(author);
+        catalogCacheEvictor.evictAuthor(id);
         return mapToDto(updatedAuthor);
     }
 
@@ -79,6 +81,7 @@ public class AuthorServiceImpl implements AuthorService {
         }
 
         authorRepository.deleteById(id);
+        catalogCacheEvictor.evictAuthor(id);
     }
 
     @Override
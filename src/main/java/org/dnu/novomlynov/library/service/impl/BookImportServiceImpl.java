@@ -0,0 +1,199 @@
+package org.dnu.novomlynov.library.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.dnu.novomlynov.library.dto.BookImportError;
+import org.dnu.novomlynov.library.dto.BookImportReport;
+import org.dnu.novomlynov.library.dto.BookImportRow;
+import org.dnu.novomlynov.library.repository.CatalogImportRepository;
+import org.dnu.novomlynov.library.repository.CatalogImportRepository.UpsertedBook;
+import org.dnu.novomlynov.library.service.BookImportService;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookImportServiceImpl implements BookImportService {
+    static final int CHUNK_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private final CatalogImportRepository catalogImportRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CatalogCacheEvictor catalogCacheEvictor;
+
+    private record NumberedRow(long line, BookImportRow row) {
+    }
+
+    // Only one chunk of rows is held in memory, each chunk commits on its own
+    @Override
+    public BookImportReport importBooks(InputStream ndjson) {
+        BookImportReport report = new BookImportReport();
+        Map<String, NumberedRow> chunk = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                report.setProcessed(report.getProcessed() + 1);
+
+                BookImportRow row;
+                try {
+                    row = objectMapper.readValue(line, BookImportRow.class);
+                } catch (JsonProcessingException e) {
+                    fail(report, lineNumber, null, "Malformed row: " + e.getOriginalMessage());
+                    continue;
+                }
+                String error = validate(row);
+                if (error != null) {
+                    fail(report, lineNumber, row.getIsbn(), error);
+                    continue;
+                }
+
+                // A repeated ISBN goes into the next chunk, one upsert statement cannot touch a row twice
+                if (chunk.size() == CHUNK_SIZE || chunk.containsKey(row.getIsbn())) {
+                    flush(chunk.values(), report);
+                    chunk.clear();
+                }
+                chunk.put(row.getIsbn(), new NumberedRow(lineNumber, row));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the import stream", e);
+        }
+        if (!chunk.isEmpty()) {
+            flush(chunk.values(), report);
+        }
+        log.info("Book import finished: {} rows processed, {} inserted, {} updated, {} failed",
+                report.getProcessed(), report.getInserted(), report.getUpdated(), report.getFailed());
+        return report;
+    }
+
+    private void flush(Collection<NumberedRow> chunk, BookImportReport report) {
+        List<NumberedRow> rows = List.copyOf(chunk);
+        try {
+            count(report, transactionTemplate.execute(status -> importChunk(rows)));
+        } catch (DataAccessException e) {
+            // The chunk rolled back, retry its rows one by one so that only the offending ones are reported
+            log.debug("Import chunk rejected, retrying {} rows one by one", rows.size(), e);
+            for (NumberedRow row : rows) {
+                try {
+                    count(report, transactionTemplate.execute(status -> importChunk(List.of(row))));
+                } catch (DataAccessException rowException) {
+                    fail(report, row.line(), row.row().getIsbn(), rowException.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        log.info("Book import progress: {} rows processed, {} inserted, {} updated, {} failed",
+                report.getProcessed(), report.getInserted(), report.getUpdated(), report.getFailed());
+    }
+
+    private List<UpsertedBook> importChunk(List<NumberedRow> rows) {
+        Map<String, Long> authorIds = catalogImportRepository.resolveAuthors(
+                distinct(rows, BookImportRow::getAuthors));
+        Map<String, Long> categoryIds = catalogImportRepository.resolveCategories(
+                distinct(rows, BookImportRow::getCategories));
+
+        List<UpsertedBook> books = catalogImportRepository.upsertBooks(
+                rows.stream().map(NumberedRow::row).toList());
+
+        // Links of the updated books are replaced by the imported ones
+        List<Long> updatedIds = books.stream()
+                .filter(book -> !book.inserted())
+                .map(UpsertedBook::id)
+                .toList();
+        catalogImportRepository.deleteLinks(updatedIds);
+        catalogCacheEvictor.evictBookLinks(updatedIds);
+
+        Map<String, BookImportRow> rowsByIsbn = new HashMap<>();
+        rows.forEach(row -> rowsByIsbn.put(row.row().getIsbn(), row.row()));
+        Map<Long, Set<Long>> authorLinks = new HashMap<>();
+        Map<Long, Set<Long>> categoryLinks = new HashMap<>();
+        for (UpsertedBook book : books) {
+            BookImportRow row = rowsByIsbn.get(book.isbn());
+            authorLinks.put(book.id(), ids(row.getAuthors(), authorIds));
+            categoryLinks.put(book.id(), ids(row.getCategories(), categoryIds));
+        }
+        catalogImportRepository.insertAuthorLinks(authorLinks);
+        catalogImportRepository.insertCategoryLinks(categoryLinks);
+        return books;
+    }
+
+    private static String validate(BookImportRow row) {
+        if (row.getTitle() == null || row.getTitle().isBlank()) {
+            return "Book title is required";
+        }
+        if (row.getIsbn() == null || row.getIsbn().isBlank()) {
+            return "ISBN is required";
+        }
+        if (row.getIsbn().length() > 20) {
+            return "ISBN must not be longer than 20 characters";
+        }
+        if (row.getTotalCopies() == null || row.getTotalCopies() < 0) {
+            return "Total copies cannot be negative";
+        }
+        if (row.getAuthors() == null || row.getAuthors().stream().allMatch(name -> name == null || name.isBlank())) {
+            return "At least one author is required";
+        }
+        if (row.getCategories() == null
+                || row.getCategories().stream().allMatch(name -> name == null || name.isBlank())) {
+            return "At least one category is required";
+        }
+        return null;
+    }
+
+    private static Set<String> distinct(List<NumberedRow> rows, Function<BookImportRow, List<String>> names) {
+        Set<String> distinct = new LinkedHashSet<>();
+        rows.forEach(row -> names.apply(row.row()).stream()
+                .filter(name -> name != null && !name.isBlank())
+                .map(String::trim)
+                .forEach(distinct::add));
+        return distinct;
+    }
+
+    private static Set<Long> ids(List<String> names, Map<String, Long> idsByName) {
+        Set<Long> ids = new LinkedHashSet<>();
+        names.stream()
+                .filter(name -> name != null && !name.isBlank())
+                .map(name -> idsByName.get(name.trim()))
+                .forEach(ids::add);
+        return ids;
+    }
+
+    private static void count(BookImportReport report, List<UpsertedBook> books) {
+        long inserted = books.stream().filter(UpsertedBook::inserted).count();
+        report.setInserted(report.getInserted() + inserted);
+        report.setUpdated(report.getUpdated() + books.size() - inserted);
+    }
+
+    private static void fail(BookImportReport report, long line, String isbn, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(BookImportError.builder().line(line).isbn(isbn).message(message).build());
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+}
@@ -1,8 +1,18 @@
 package org.dnu.novomlynov.library.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.dnu.novomlynov.library.config.LendingConfigurationProperties;
+import org.dnu.novomlynov.library.config.LendingMetrics;
+import org.dnu.novomlynov.library.dto.BatchIssueRequest;
+import org.dnu.novomlynov.library.dto.BatchLendingItem;
+import org.dnu.novomlynov.library.dto.BatchLendingResult;
+import org.dnu.novomlynov.library.dto.BatchReturnRequest;
 import org.dnu.novomlynov.library.dto.BookDto;
 import org.dnu.novomlynov.library.dto.BookLendingDto;
+import org.dnu.novomlynov.library.dto.CursorPage;
 import org.dnu.novomlynov.library.dto.SubscriberDto;
 import org.dnu.novomlynov.library.exception.ResourceNotFoundException;
 import org.dnu.novomlynov.library.model.Book;
@@ -13,44 +23,80 @@ import org.dnu.novomlynov.library.repository.BookLendingRepository;
 import org.dnu.novomlynov.library.repository.BookRepository;
 import org.dnu.novomlynov.library.repository.SubscriberRepository;
 import org.dnu.novomlynov.library.service.BookLendingService;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class BookLendingServiceImpl implements BookLendingService {
 
+    // Columns /scroll can sort by, with the parsers that read their values back from a cursor
+    private static final Map<String, Function<String, Object>> SCROLL_KEYS = Map.of(
+            "id", Long::valueOf,
+            "issueDate", LocalDate::parse,
+            "dueDate", LocalDate::parse);
+    // Rows written between persistence context clears and output flushes during an export
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
     private final BookLendingRepository bookLendingRepository;
     private final BookRepository bookRepository;
     private final SubscriberRepository subscriberRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final LendingMetrics lendingMetrics;
+    private final LendingConfigurationProperties lendingConfigurationProperties;
 
     @Override
     @Transactional
     public BookLendingDto issueBook(BookLendingDto bookLendingDto) {
-        Book book = bookRepository.findById(bookLendingDto.getBookId())
-                .orElseThrow(
-                        () -> new ResourceNotFoundException("Book not found with id: " + bookLendingDto.getBookId()));
-
         Subscriber subscriber = subscriberRepository.findById(bookLendingDto.getSubscriberId())
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Subscriber not found with id: " + bookLendingDto.getSubscriberId()));
 
-        // Check if the book has available copies
-        if (book.getAvailableCopies() <= 0) {
-            throw new IllegalStateException("No available copies for this book");
-        }
-
         // Check if the subscriber is active
         if (!subscriber.isActive()) {
             throw new IllegalStateException("Subscriber is not active");
         }
 
+        // Every lending change updates the subscriber before the book, so they never wait on each other in a cycle
+        if (subscriberRepository.reserveLoans(subscriber.getId(), 1, maxActiveLoans()) == 0) {
+            throw new IllegalStateException(loanLimitMessage());
+        }
+
+        // Take a copy in a single conditional update so concurrent issues can never oversell
+        if (bookRepository.reserveCopy(bookLendingDto.getBookId()) == 0) {
+            if (!bookRepository.existsById(bookLendingDto.getBookId())) {
+                throw new ResourceNotFoundException("Book not found with id: " + bookLendingDto.getBookId());
+            }
+            throw new IllegalStateException("No available copies for this book");
+        }
+
+        Book book = bookRepository.findById(bookLendingDto.getBookId())
+                .orElseThrow(
+                        () -> new ResourceNotFoundException("Book not found with id: " + bookLendingDto.getBookId()));
+
         // Create the lending record
         BookLending bookLending = BookLending.builder()
                 .book(book)
@@ -60,19 +106,17 @@ public class BookLendingServiceImpl implements BookLendingService {
                 .status(LendingStatus.ISSUED)
                 .build();
 
-        // Update book availability
-        book.setAvailableCopies(book.getAvailableCopies() - 1);
-        bookRepository.save(book);
-
         // Save the lending record
         BookLending savedLending = bookLendingRepository.save(bookLending);
+        lendingMetrics.transition(null, LendingStatus.ISSUED);
         return mapToDto(savedLending);
     }
 
     @Override
     @Transactional
     public BookLendingDto returnBook(Long id) {
-        BookLending bookLending = bookLendingRepository.findById(id)
+        // Lock the lending so the same record cannot be returned twice concurrently
+        BookLending bookLending = bookLendingRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Lending record not found with id: " + id));
 
         // Check if the book is already returned
@@ -80,37 +124,181 @@ public class BookLendingServiceImpl implements BookLendingService {
             throw new IllegalStateException("Book is already returned");
         }
 
-        // Update the book's available copies
-        Book book = bookLending.getBook();
-        book.setAvailableCopies(book.getAvailableCopies() + 1);
-        bookRepository.save(book);
+        // Update the subscriber's active loans and the book's available copies
+        subscriberRepository.releaseLoans(bookLending.getSubscriber().getId(), 1);
+        bookRepository.releaseCopy(bookLending.getBook().getId());
 
         // Update the lending record
+        LendingStatus previousStatus = bookLending.getStatus();
         bookLending.setReturnDate(LocalDate.now());
         bookLending.setStatus(LendingStatus.RETURNED);
 
         BookLending updatedLending = bookLendingRepository.save(bookLending);
+        lendingMetrics.transition(previousStatus, LendingStatus.RETURNED);
         return mapToDto(updatedLending);
     }
 
+    @Override
+    @Transactional
+    public BatchLendingResult issueBooks(BatchIssueRequest request) {
+        // Locked, so the active loans read here stay valid until the new loans are added
+        Subscriber subscriber = subscriberRepository.findByIdForUpdate(request.getSubscriberId())
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Subscriber not found with id: " + request.getSubscriberId()));
+        if (!subscriber.isActive()) {
+            throw new IllegalStateException("Subscriber is not active");
+        }
+
+        // One conditional update takes a copy of every book that still has one
+        Set<Long> requested = new LinkedHashSet<>(request.getBookIds());
+        Set<Long> taken = new HashSet<>(bookRepository.reserveCopies(requested));
+        Set<Long> existing = taken.size() == requested.size()
+                ? requested : new HashSet<>(bookRepository.findExistingIds(requested));
+
+        // Copies beyond the subscriber's loan limit go back, the earliest requested books are kept
+        int freeLoans = Math.max(maxActiveLoans() - subscriber.getActiveLoans(), 0);
+        Set<Long> reserved = new HashSet<>();
+        Set<Long> overLimit = new HashSet<>();
+        for (Long bookId : requested) {
+            if (taken.contains(bookId)) {
+                (reserved.size() < freeLoans ? reserved : overLimit).add(bookId);
+            }
+        }
+        if (!overLimit.isEmpty()) {
+            bookRepository.releaseCopies(overLimit, 1);
+        }
+
+        LocalDate issueDate = request.getIssueDate() != null ? request.getIssueDate() : LocalDate.now();
+        Map<Long, BookLending> issued = new LinkedHashMap<>();
+        if (!reserved.isEmpty()) {
+            for (Book book : bookRepository.findAllById(reserved)) {
+                issued.put(book.getId(), BookLending.builder()
+                        .book(book)
+                        .subscriber(subscriber)
+                        .issueDate(issueDate)
+                        .dueDate(request.getDueDate())
+                        .status(LendingStatus.ISSUED)
+                        .build());
+            }
+            // Inserted as one JDBC batch when the transaction flushes
+            bookLendingRepository.saveAll(issued.values());
+            subscriberRepository.reserveLoans(subscriber.getId(), issued.size(), maxActiveLoans());
+            lendingMetrics.transition(null, LendingStatus.ISSUED, issued.size());
+        }
+
+        return batchResult(request.getBookIds(), issued, bookId -> {
+            if (overLimit.contains(bookId)) {
+                return loanLimitMessage();
+            }
+            return existing.contains(bookId) ? "No available copies for this book" : "Book not found with id: " + bookId;
+        });
+    }
+
+    @Override
+    @Transactional
+    public BatchLendingResult returnBooks(BatchReturnRequest request) {
+        Set<Long> requested = new LinkedHashSet<>(request.getLendingIds());
+        List<BookLending> lendings = bookLendingRepository.findAllByIdForUpdate(requested);
+        // Loads what the results show with one query per kind instead of one per lending
+        bookRepository.findAllById(lendings.stream().map(lending -> lending.getBook().getId()).toList());
+        subscriberRepository.findAllById(lendings.stream().map(lending -> lending.getSubscriber().getId()).toList());
+
+        Map<Long, BookLending> returned = new HashMap<>();
+        Set<Long> alreadyReturned = new HashSet<>();
+        Map<Long, Integer> loansBySubscriber = new TreeMap<>();
+        Map<Long, Integer> copiesByBook = new HashMap<>();
+        Map<LendingStatus, Integer> returnedByStatus = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        for (BookLending lending : lendings) {
+            if (lending.getStatus() == LendingStatus.RETURNED) {
+                alreadyReturned.add(lending.getId());
+                continue;
+            }
+            returnedByStatus.merge(lending.getStatus(), 1, Integer::sum);
+            lending.setReturnDate(today);
+            lending.setStatus(LendingStatus.RETURNED);
+            returned.put(lending.getId(), lending);
+            loansBySubscriber.merge(lending.getSubscriber().getId(), 1, Integer::sum);
+            copiesByBook.merge(lending.getBook().getId(), 1, Integer::sum);
+        }
+
+        // Subscribers in ID order and before the books, like every other lending change
+        loansBySubscriber.forEach((subscriberId, loans) -> subscriberRepository.releaseLoans(subscriberId, loans));
+
+        // One update per distinct number of copies, a single one unless a book is returned more than once.
+        // Each update locks only its own books, so with more than one every book is locked in ID order first
+        if (new HashSet<>(copiesByBook.values()).size() > 1) {
+            bookRepository.lockAll(copiesByBook.keySet());
+        }
+        copiesByBook.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((copies, bookIds) -> bookRepository.releaseCopies(bookIds, copies));
+        returnedByStatus.forEach((status, count) -> lendingMetrics.transition(status, LendingStatus.RETURNED, count));
+
+        return batchResult(request.getLendingIds(), returned, lendingId -> alreadyReturned.contains(lendingId)
+                ? "Book is already returned" : "Lending record not found with id: " + lendingId);
+    }
+
+    private int maxActiveLoans() {
+        return lendingConfigurationProperties.getMaxActiveLoans();
+    }
+
+    private String loanLimitMessage() {
+        return "Subscriber has reached the limit of " + maxActiveLoans() + " active loans";
+    }
+
+    // One item per requested ID in request order, an ID listed again fails without being processed twice
+    private BatchLendingResult batchResult(List<Long> requestedIds, Map<Long, BookLending> succeeded,
+                                           Function<Long, String> failure) {
+        BatchLendingResult result = new BatchLendingResult();
+        Set<Long> seen = new HashSet<>();
+        for (Long id : requestedIds) {
+            BatchLendingItem.BatchLendingItemBuilder item = BatchLendingItem.builder().id(id);
+            if (!seen.add(id)) {
+                item.error("Listed more than once in this batch");
+            } else if (succeeded.containsKey(id)) {
+                item.success(true).lending(mapToDto(succeeded.get(id)));
+            } else {
+                item.error(failure.apply(id));
+            }
+            result.getItems().add(item.build());
+        }
+        result.setSucceeded((int) result.getItems().stream().filter(BatchLendingItem::isSuccess).count());
+        result.setFailed(result.getItems().size() - result.getSucceeded());
+        return result;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public BookLendingDto getLendingById(Long id) {
         return bookLendingRepository.findById(id)
-                .map(this::mapToDto)
+                .map(BookLendingServiceImpl::mapToDto)
                 .orElseThrow(() -> new ResourceNotFoundException("Lending record not found with id: " + id));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<BookLendingDto> getAllLendings(Pageable pageable) {
-        return bookLendingRepository.findAll(pageable).map(this::mapToDto);
+        return bookLendingRepository.findAll(pageable).map(BookLendingServiceImpl::mapToDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookLendingDto> scrollLendings(LendingStatus status, String cursor, int size, Sort sort) {
+        Sort keysetSort = KeysetCursor.sort(sort, SCROLL_KEYS);
+        ScrollPosition position = KeysetCursor.position(cursor, keysetSort, SCROLL_KEYS);
+        Limit limit = KeysetCursor.limit(size);
+        Window<BookLending> lendings = status == null
+                ? bookLendingRepository.findAllBy(position, keysetSort, limit)
+                : bookLendingRepository.findByStatus(status, position, keysetSort, limit);
+        return KeysetCursor.page(lendings, keysetSort, size, BookLendingServiceImpl::mapToDto);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<BookLendingDto> getLendingsByStatus(LendingStatus status, Pageable pageable) {
-        return bookLendingRepository.findByStatus(status, pageable).map(this::mapToDto);
+        return bookLendingRepository.findByStatus(status, pageable).map(BookLendingServiceImpl::mapToDto);
     }
 
     @Override
@@ -119,7 +307,7 @@ public class BookLendingServiceImpl implements BookLendingService {
         if (!subscriberRepository.existsById(subscriberId)) {
             throw new ResourceNotFoundException("Subscriber not found with id: " + subscriberId);
         }
-        return bookLendingRepository.findBySubscriberId(subscriberId, pageable).map(this::mapToDto);
+        return bookLendingRepository.findBySubscriberId(subscriberId, pageable).map(BookLendingServiceImpl::mapToDto);
     }
 
     @Override
@@ -128,46 +316,53 @@ public class BookLendingServiceImpl implements BookLendingService {
         if (!subscriberRepository.existsById(subscriberId)) {
             throw new ResourceNotFoundException("Subscriber not found with id: " + subscriberId);
         }
-        return bookLendingRepository.findBySubscriberIdAndStatus(subscriberId, LendingStatus.ISSUED, pageable)
-                .map(this::mapToDto);
+        return bookLendingRepository.findBySubscriberIdAndStatusIn(subscriberId,
+                        Set.of(LendingStatus.ISSUED, LendingStatus.OVERDUE), pageable)
+                .map(BookLendingServiceImpl::mapToDto);
     }
 
     @Override
-    @Transactional
-    public List<BookLendingDto> getOverdueBooks() {
-        LocalDate today = LocalDate.now();
-
-        // Find all issued books with due date before today
-        List<BookLending> overdueBooks = bookLendingRepository.findOverdueBooks(today);
-
-        // Update their status to OVERDUE
-        overdueBooks.forEach(lending -> {
-            if (lending.getStatus() == LendingStatus.ISSUED) {
-                lending.setStatus(LendingStatus.OVERDUE);
-                bookLendingRepository.save(lending);
-            }
-        });
-
-        return overdueBooks.stream().map(this::mapToDto).collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public Page<BookLendingDto> getOverdueBooks(Pageable pageable) {
+        return bookLendingRepository.findOverdue(LocalDate.now(), pageable).map(BookLendingServiceImpl::mapToDto);
     }
 
     @Override
     @Transactional
     public void deleteBookLending(Long id) {
-        BookLending bookLending = bookLendingRepository.findById(id)
+        BookLending bookLending = bookLendingRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Lending record not found with id: " + id));
 
         // If the book is currently issued, update the book's available copies
         if (bookLending.getStatus() == LendingStatus.ISSUED || bookLending.getStatus() == LendingStatus.OVERDUE) {
-            Book book = bookLending.getBook();
-            book.setAvailableCopies(book.getAvailableCopies() + 1);
-            bookRepository.save(book);
+            subscriberRepository.releaseLoans(bookLending.getSubscriber().getId(), 1);
+            bookRepository.releaseCopy(bookLending.getBook().getId());
         }
 
-        bookLendingRepository.deleteById(id);
+        bookLendingRepository.delete(bookLending);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportLendings(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(BookLendingDto.class);
+        try (Stream<BookLending> lendings = bookLendingRepository.streamByIssueDate(from, to)) {
+            Iterator<BookLending> iterator = lendings.iterator();
+            long written = 0;
+            while (iterator.hasNext()) {
+                out.write(writer.writeValueAsBytes(mapToDto(iterator.next())));
+                out.write('\n');
+                // Detach what has been written so memory stays flat however many rows there are
+                if (++written % EXPORT_CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
     }
 
-    private BookLendingDto mapToDto(BookLending bookLending) {
+    static BookLendingDto mapToDto(BookLending bookLending) {
         BookLendingDto dto = BookLendingDto.builder()
                 .id(bookLending.getId())
                 .bookId(bookLending.getBook().getId())
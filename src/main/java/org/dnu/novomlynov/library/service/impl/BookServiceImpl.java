@@ -4,31 +4,45 @@ import lombok.RequiredArgsConstructor;
 import org.dnu.novomlynov.library.dto.AuthorDto;
 import org.dnu.novomlynov.library.dto.BookDto;
 import org.dnu.novomlynov.library.dto.CategoryDto;
+import org.dnu.novomlynov.library.dto.CursorPage;
 import org.dnu.novomlynov.library.exception.ResourceNotFoundException;
 import org.dnu.novomlynov.library.model.Author;
 import org.dnu.novomlynov.library.model.Book;
 import org.dnu.novomlynov.library.model.Category;
 import org.dnu.novomlynov.library.repository.AuthorRepository;
 import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.BookSearchHit;
 import org.dnu.novomlynov.library.repository.CategoryRepository;
 import org.dnu.novomlynov.library.service.BookService;
+import org.dnu.novomlynov.library.service.impl.CatalogReferenceResolver.CatalogReferences;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService {
 
+    // Columns /scroll can sort by, with the parsers that read their values back from a cursor
+    private static final Map<String, Function<String, Object>> SCROLL_KEYS = Map.of(
+            "id", Long::valueOf,
+            "title", title -> title);
+
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
     private final CategoryRepository categoryRepository;
+    private final CatalogReferenceResolver catalogReferenceResolver;
 
     @Override
     @Transactional
@@ -46,7 +60,7 @@ public class BookServiceImpl implements BookService {
     @Transactional(readOnly = true)
     public BookDto getBookById(Long id) {
         return bookRepository.findById(id)
-                .map(this::mapToDto)
+                .map(BookServiceImpl::mapToDto)
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
     }
 
@@ -54,20 +68,67 @@ public class BookServiceImpl implements BookService {
     @Transactional(readOnly = true)
     public BookDto getBookByIsbn(String isbn) {
         return bookRepository.findByIsbn(isbn)
-                .map(this::mapToDto)
+                .map(BookServiceImpl::mapToDto)
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found with ISBN: " + isbn));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<BookDto> getAllBooks(Pageable pageable) {
-        return bookRepository.findAll(pageable).map(this::mapToDto);
+        Page<Book> books = bookRepository.findAll(pageable);
+        bookRepository.fetchAssociations(books.getContent());
+        return books.map(BookServiceImpl::mapToDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookDto> searchBooks(String searchTerm, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+
+        // Fetch one extra hit to find out whether there is a next slice
+        List<BookSearchHit> hits;
+        if (cursor == null || cursor.isBlank()) {
+            hits = bookRepository.search(searchTerm, size + 1);
+        } else {
+            String[] position = CursorCodec.decode(cursor, 2);
+            float lastRank = Float.parseFloat(position[0]);
+            if (!Float.isFinite(lastRank)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            hits = bookRepository.searchAfter(searchTerm, lastRank, Long.valueOf(position[1]), size + 1);
+        }
+
+        boolean hasNext = hits.size() > size;
+        List<BookSearchHit> pageHits = hasNext ? hits.subList(0, size) : hits;
+
+        List<Book> books = bookRepository.findAllById(pageHits.stream().map(BookSearchHit::getId).toList());
+        Map<Long, Book> booksById = bookRepository.fetchAssociations(books).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<BookDto> content = pageHits.stream()
+                .map(hit -> booksById.get(hit.getId()))
+                .filter(Objects::nonNull)
+                .map(BookServiceImpl::mapToDto)
+                .toList();
+
+        BookSearchHit last = pageHits.isEmpty() ? null : pageHits.getLast();
+        return CursorPage.<BookDto>builder()
+                .content(content)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? CursorCodec.encode(last.getRank(), last.getId()) : null)
+                .build();
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<BookDto> searchBooks(String searchTerm, Pageable pageable) {
-        return bookRepository.search(searchTerm, pageable).map(this::mapToDto);
+    public CursorPage<BookDto> scrollBooks(String cursor, int size, Sort sort) {
+        Sort keysetSort = KeysetCursor.sort(sort, SCROLL_KEYS);
+        Window<Book> books = bookRepository.findAllBy(
+                KeysetCursor.position(cursor, keysetSort, SCROLL_KEYS), keysetSort, KeysetCursor.limit(size));
+        bookRepository.fetchAssociations(books.getContent());
+        return KeysetCursor.page(books, keysetSort, size, BookServiceImpl::mapToDto);
     }
 
     @Override
@@ -76,7 +137,9 @@ public class BookServiceImpl implements BookService {
         if (!authorRepository.existsById(authorId)) {
             throw new ResourceNotFoundException("Author not found with id: " + authorId);
         }
-        return bookRepository.findByAuthorNameContainingIgnoreCase(authorId.toString(), pageable).map(this::mapToDto);
+        Page<Book> books = bookRepository.findByAuthorId(authorId, pageable);
+        bookRepository.fetchAssociations(books.getContent());
+        return books.map(BookServiceImpl::mapToDto);
     }
 
     @Override
@@ -85,8 +148,9 @@ public class BookServiceImpl implements BookService {
         if (!categoryRepository.existsById(categoryId)) {
             throw new ResourceNotFoundException("Category not found with id: " + categoryId);
         }
-        return bookRepository.findByCategoryNameContainingIgnoreCase(categoryId.toString(), pageable)
-                .map(this::mapToDto);
+        Page<Book> books = bookRepository.findByCategoryId(categoryId, pageable);
+        bookRepository.fetchAssociations(books.getContent());
+        return books.map(BookServiceImpl::mapToDto);
     }
 
     @Override
@@ -104,26 +168,14 @@ public class BookServiceImpl implements BookService {
         book.setTitle(bookDto.getTitle());
         book.setIsbn(bookDto.getIsbn());
 
-        // Update authors if provided
-        if (bookDto.getAuthorIds() != null && !bookDto.getAuthorIds().isEmpty()) {
-            Set<Author> authors = new HashSet<>();
-            for (Long authorId : bookDto.getAuthorIds()) {
-                Author author = authorRepository.findById(authorId)
-                        .orElseThrow(() -> new ResourceNotFoundException("Author not found with id: " + authorId));
-                authors.add(author);
-            }
-            book.setAuthors(authors);
+        // Authors and categories are replaced only when provided
+        CatalogReferences references = catalogReferenceResolver.resolve(
+                bookDto.getAuthorIds(), bookDto.getCategoryIds());
+        if (!references.authors().isEmpty()) {
+            book.setAuthors(references.authors());
         }
-
-        // Update categories if provided
-        if (bookDto.getCategoryIds() != null && !bookDto.getCategoryIds().isEmpty()) {
-            Set<Category> categories = new HashSet<>();
-            for (Long categoryId : bookDto.getCategoryIds()) {
-                Category category = categoryRepository.findById(categoryId)
-                        .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + categoryId));
-                categories.add(category);
-            }
-            book.setCategories(categories);
+        if (!references.categories().isEmpty()) {
+            book.setCategories(references.categories());
         }
 
         Book updatedBook = bookRepository.save(book);
@@ -133,24 +185,14 @@ public class BookServiceImpl implements BookService {
     @Override
     @Transactional
     public void updateBookCopies(Long id, int totalCopies) {
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
-
         if (totalCopies < 0) {
             throw new IllegalArgumentException("Total copies cannot be negative");
         }
 
-        // Calculate the difference between new total and current total
-        int difference = totalCopies - book.getTotalCopies();
-
-        // Update total copies
-        book.setTotalCopies(totalCopies);
-
-        // Update available copies (cannot be negative)
-        int newAvailableCopies = Math.max(0, book.getAvailableCopies() + difference);
-        book.setAvailableCopies(newAvailableCopies);
-
-        bookRepository.save(book);
+        // Total and available copies change together in one update, available copies cannot go negative
+        if (bookRepository.updateTotalCopies(id, totalCopies) == 0) {
+            throw new ResourceNotFoundException("Book not found with id: " + id);
+        }
     }
 
     @Override
@@ -179,14 +221,13 @@ public class BookServiceImpl implements BookService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<BookDto> getAvailableBooks() {
-        return bookRepository.findAll().stream()
-                .filter(book -> book.getAvailableCopies() > 0)
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    public Page<BookDto> getAvailableBooks(Long authorId, Long categoryId, Pageable pageable) {
+        Page<Book> books = bookRepository.findAvailable(authorId, categoryId, pageable);
+        bookRepository.fetchAssociations(books.getContent());
+        return books.map(BookServiceImpl::mapToDto);
     }
 
-    private BookDto mapToDto(Book book) {
+    static BookDto mapToDto(Book book) {
         BookDto dto = BookDto.builder()
                 .id(book.getId())
                 .title(book.getTitle())
@@ -242,27 +283,10 @@ public class BookServiceImpl implements BookService {
                         bookDto.getAvailableCopies() != null ? bookDto.getAvailableCopies() : bookDto.getTotalCopies())
                 .build();
 
-        // Set authors
-        if (bookDto.getAuthorIds() != null && !bookDto.getAuthorIds().isEmpty()) {
-            Set<Author> authors = new HashSet<>();
-            for (Long authorId : bookDto.getAuthorIds()) {
-                Author author = authorRepository.findById(authorId)
-                        .orElseThrow(() -> new ResourceNotFoundException("Author not found with id: " + authorId));
-                authors.add(author);
-            }
-            book.setAuthors(authors);
-        }
-
-        // Set categories
-        if (bookDto.getCategoryIds() != null && !bookDto.getCategoryIds().isEmpty()) {
-            Set<Category> categories = new HashSet<>();
-            for (Long categoryId : bookDto.getCategoryIds()) {
-                Category category = categoryRepository.findById(categoryId)
-                        .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + categoryId));
-                categories.add(category);
-            }
-            book.setCategories(categories);
-        }
+        CatalogReferences references = catalogReferenceResolver.resolve(
+                bookDto.getAuthorIds(), bookDto.getCategoryIds());
+        book.setAuthors(references.authors());
+        book.setCategories(references.categories());
 
         return book;
     }
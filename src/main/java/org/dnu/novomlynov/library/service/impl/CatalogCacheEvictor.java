@@ -0,0 +1,62 @@
+package org.dnu.novomlynov.library.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.dnu.novomlynov.library.model.Author;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.Category;
+import org.hibernate.Cache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Drops second-level cache entries of changed catalog rows.
+ * Eviction waits for the commit, otherwise a concurrent reader could cache the old row again.
+ */
+@Component
+@RequiredArgsConstructor
+class CatalogCacheEvictor {
+    private static final String BOOK_AUTHORS = Book.class.getName() + ".authors";
+    private static final String BOOK_CATEGORIES = Book.class.getName() + ".categories";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    void evictAuthor(Long id) {
+        afterCommit(cache -> cache.evictEntityData(Author.class, id));
+    }
+
+    void evictCategory(Long id) {
+        afterCommit(cache -> cache.evictEntityData(Category.class, id));
+    }
+
+    // For links written with plain SQL, which Hibernate does not see
+    void evictBookLinks(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(bookIds);
+        afterCommit(cache -> ids.forEach(id -> {
+            cache.evictCollectionData(BOOK_AUTHORS, id);
+            cache.evictCollectionData(BOOK_CATEGORIES, id);
+        }));
+    }
+
+    private void afterCommit(Consumer<Cache> eviction) {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.accept(cache);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.accept(cache);
+            }
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package org.dnu.novomlynov.library.service.impl;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.dnu.novomlynov.library.exception.ResourceNotFoundException;
+import org.dnu.novomlynov.library.model.Author;
+import org.dnu.novomlynov.library.model.Category;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Loads the authors and categories books refer to with at most one query per kind, however many ids there
+ * are. Ids already in the second-level cache are served from it without a query.
+ */
+@Component
+@RequiredArgsConstructor
+class CatalogReferenceResolver {
+
+    private final EntityManager entityManager;
+
+    record CatalogReferences(Set<Author> authors, Set<Category> categories) {
+    }
+
+    // Every missing id, of either kind, is reported in one exception
+    CatalogReferences resolve(Collection<Long> authorIds, Collection<Long> categoryIds) {
+        Set<Long> requestedAuthorIds = requested(authorIds);
+        Set<Long> requestedCategoryIds = requested(categoryIds);
+        Set<Author> authors = load(Author.class, requestedAuthorIds);
+        Set<Category> categories = load(Category.class, requestedCategoryIds);
+
+        List<String> errors = new ArrayList<>();
+        Set<Long> missingAuthorIds = missing(requestedAuthorIds, authors, Author::getId);
+        if (!missingAuthorIds.isEmpty()) {
+            errors.add("Authors not found with ids: " + missingAuthorIds);
+        }
+        Set<Long> missingCategoryIds = missing(requestedCategoryIds, categories, Category::getId);
+        if (!missingCategoryIds.isEmpty()) {
+            errors.add("Categories not found with ids: " + missingCategoryIds);
+        }
+        if (!errors.isEmpty()) {
+            throw new ResourceNotFoundException(String.join("; ", errors));
+        }
+        return new CatalogReferences(authors, categories);
+    }
+
+    // Unlike findAllById, a multi-load reads the second-level cache and queries only the ids it misses
+    private <T> Set<T> load(Class<T> type, Set<Long> ids) {
+        Set<T> found = new HashSet<>();
+        if (!ids.isEmpty()) {
+            entityManager.unwrap(Session.class).byMultipleIds(type).multiLoad(new ArrayList<>(ids)).stream()
+                    .filter(Objects::nonNull)
+                    .forEach(found::add);
+        }
+        return found;
+    }
+
+    private static Set<Long> requested(Collection<Long> ids) {
+        Set<Long> requested = new HashSet<>();
+        if (ids != null) {
+            ids.stream().filter(Objects::nonNull).forEach(requested::add);
+        }
+        return requested;
+    }
+
+    private static <T> Set<Long> missing(Set<Long> requested, Set<T> found, Function<T, Long> id) {
+        Set<Long> missing = new TreeSet<>(requested);
+        found.forEach(entity -> missing.remove(id.apply(entity)));
+        return missing;
+    }
+}
@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final CatalogCacheEvictor catalogCacheEvictor;
 
     @Override
     @Transactional
@@ -74,6 +75,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category updatedCategory = categoryRepository.save(category);
+        catalogCacheEvictor.evictCategory(id);
         return mapToDto(updatedCategory);
     }
 
@@ -89,6 +91,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryRepository.deleteById(id);
+        catalogCacheEvictor.evictCategory(id);
     }
 
     @Override
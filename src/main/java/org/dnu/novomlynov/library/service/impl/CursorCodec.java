@@ -0,0 +1,39 @@
+package org.dnu.novomlynov.library.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes keyset positions into opaque continuation tokens handed out to API clients.
+ */
+final class CursorCodec {
+
+    private static final String SEPARATOR = ".";
+
+    private CursorCodec() {
+    }
+
+    static String encode(Object... parts) {
+        return Arrays.stream(parts)
+                .map(part -> Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(String.valueOf(part).getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.joining(SEPARATOR));
+    }
+
+    static String[] decode(String cursor, int expectedParts) {
+        String[] parts = cursor.split("\\" + SEPARATOR, -1);
+        if (parts.length != expectedParts) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = new String(Base64.getUrlDecoder().decode(parts[i]), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,84 @@
+package org.dnu.novomlynov.library.service.impl;
+
+import org.dnu.novomlynov.library.dto.CursorPage;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keyset scrolling on (sort column, id): turns opaque cursors into scroll positions and windows into cursor pages.
+ */
+final class KeysetCursor {
+
+    private KeysetCursor() {
+    }
+
+    // Only non-null columns can be keys, the parsers restore their values from the cursor
+    static Sort sort(Sort requested, Map<String, Function<String, Object>> keys) {
+        Sort.Direction direction = Sort.Direction.ASC;
+        for (Sort.Order order : requested) {
+            if (!keys.containsKey(order.getProperty())) {
+                throw new IllegalArgumentException(
+                        "Cannot scroll by " + order.getProperty() + ", use one of " + keys.keySet());
+            }
+            direction = order.getDirection();
+        }
+        // The id makes every position unique
+        return requested.getOrderFor("id") != null ? requested : requested.and(Sort.by(direction, "id"));
+    }
+
+    static Limit limit(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+        return Limit.of(size);
+    }
+
+    static ScrollPosition position(String cursor, Sort sort, Map<String, Function<String, Object>> keys) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        List<Sort.Order> orders = sort.toList();
+        String[] parts = CursorCodec.decode(cursor, orders.size() * 2);
+        Map<String, Object> position = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            String property = orders.get(i).getProperty();
+            if (!property.equals(parts[i * 2])) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            try {
+                position.put(property, keys.get(property).apply(parts[i * 2 + 1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+        return ScrollPosition.forward(position);
+    }
+
+    static <T, D> CursorPage<D> page(Window<T> window, Sort sort, int size, Function<T, D> mapper) {
+        String nextCursor = null;
+        if (window.hasNext()) {
+            Map<String, Object> last = ((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys();
+            List<Object> parts = new ArrayList<>();
+            sort.forEach(order -> {
+                parts.add(order.getProperty());
+                parts.add(last.get(order.getProperty()));
+            });
+            nextCursor = CursorCodec.encode(parts.toArray());
+        }
+        return CursorPage.<D>builder()
+                .content(window.getContent().stream().map(mapper).toList())
+                .size(size)
+                .hasNext(window.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package org.dnu.novomlynov.library.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.dnu.novomlynov.library.dto.CursorPage;
 import org.dnu.novomlynov.library.dto.SubscriberDto;
 import org.dnu.novomlynov.library.exception.ResourceNotFoundException;
 import org.dnu.novomlynov.library.model.LendingStatus;
@@ -10,16 +11,25 @@ import org.dnu.novomlynov.library.repository.SubscriberRepository;
 import org.dnu.novomlynov.library.service.SubscriberService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SubscriberServiceImpl implements SubscriberService {
 
+    // Columns /scroll can sort by, with the parsers that read their values back from a cursor
+    private static final Map<String, Function<String, Object>> SCROLL_KEYS = Map.of(
+            "id", Long::valueOf,
+            "name", name -> name);
+
     private final SubscriberRepository subscriberRepository;
     private final BookLendingRepository bookLendingRepository;
 
@@ -63,6 +73,15 @@ public class SubscriberServiceImpl implements SubscriberService {
         return subscriberRepository.findAll(pageable).map(this::mapToDto);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<SubscriberDto> scrollSubscribers(String cursor, int size, Sort sort) {
+        Sort keysetSort = KeysetCursor.sort(sort, SCROLL_KEYS);
+        Window<Subscriber> subscribers = subscriberRepository.findAllBy(
+                KeysetCursor.position(cursor, keysetSort, SCROLL_KEYS), keysetSort, KeysetCursor.limit(size));
+        return KeysetCursor.page(subscribers, keysetSort, size, this::mapToDto);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<SubscriberDto> searchSubscribersByName(String name, Pageable pageable) {
@@ -147,6 +166,7 @@ public class SubscriberServiceImpl implements SubscriberService {
                 .phoneNumber(subscriber.getPhoneNumber())
                 .libraryCardNumber(subscriber.getLibraryCardNumber())
                 .active(subscriber.isActive())
+                .activeLoans(subscriber.getActiveLoans())
                 .createdAt(subscriber.getCreatedAt())
                 .updatedAt(subscriber.getUpdatedAt())
                 .build();
@@ -11,7 +11,9 @@ import org.dnu.novomlynov.library.model.UserPassword;
 import org.dnu.novomlynov.library.model.UserRole;
 import org.dnu.novomlynov.library.repository.UserPasswordRepository;
 import org.dnu.novomlynov.library.repository.UserRepository;
+import org.dnu.novomlynov.library.service.UserAccountChangedEvent;
 import org.dnu.novomlynov.library.service.UserService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -29,6 +31,7 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserPasswordRepository userPasswordRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
 
     @Override
@@ -96,15 +99,19 @@ public class UserServiceImpl implements UserService {
             user.setUserName(userUpdateDto.getUserName());
         }
 
+        boolean accessRevoked = false;
         if (userUpdateDto.getRoles() != null) {
+            accessRevoked = !userUpdateDto.getRoles().equals(user.getRoles());
             user.setRoles(userUpdateDto.getRoles());
         }
 
         if (userUpdateDto.getActive() != null) {
+            accessRevoked |= user.isActive() && !userUpdateDto.getActive();
             user.setActive(userUpdateDto.getActive());
         }
 
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserAccountChangedEvent(updatedUser.getLogin(), accessRevoked));
         return mapToDto(updatedUser);
     }
 
@@ -116,16 +123,17 @@ public class UserServiceImpl implements UserService {
 
         user.setActive(isActive);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserAccountChangedEvent(user.getLogin(), !isActive));
     }
 
     @Override
     @Transactional
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new ResourceNotFoundException("User not found with id: " + id);
-        }
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
-        userRepository.deleteById(id);
+        userRepository.delete(user);
+        eventPublisher.publishEvent(new UserAccountChangedEvent(user.getLogin(), true));
     }
 
     @Override
@@ -0,0 +1,88 @@
+ALTER TABLE books ADD COLUMN search_vector tsvector;
+
+-- Search document: title and ISBN weigh most, then author names, then category names
+CREATE OR REPLACE FUNCTION books_search_document(p_book_id BIGINT, p_title TEXT, p_isbn TEXT)
+RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector('simple', coalesce(p_title, '')), 'A')
+        || setweight(to_tsvector('simple', coalesce(p_isbn, '')), 'A')
+        || setweight(to_tsvector('simple', coalesce((
+               SELECT string_agg(a.name, ' ')
+               FROM book_authors ba
+               JOIN authors a ON a.id = ba.author_id
+               WHERE ba.book_id = p_book_id), '')), 'B')
+        || setweight(to_tsvector('simple', coalesce((
+               SELECT string_agg(c.name, ' ')
+               FROM book_categories bc
+               JOIN categories c ON c.id = bc.category_id
+               WHERE bc.book_id = p_book_id), '')), 'C');
+$$ LANGUAGE sql STABLE;
+
+-- Turns free text into a prefix query using the same parser as the documents, NULL when there is nothing to match
+CREATE OR REPLACE FUNCTION books_search_query(p_term TEXT)
+RETURNS tsquery AS $$
+    SELECT to_tsquery('simple', string_agg(
+               '''' || replace(replace(t.lexeme, '\', '\\'), '''', '''''') || ''':*', ' & '))
+    FROM unnest(to_tsvector('simple', coalesce(p_term, ''))) AS t;
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION books_search_vector_on_write() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := books_search_document(NEW.id, NEW.title, NEW.isbn);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER books_search_vector_on_write
+    BEFORE INSERT OR UPDATE OF title, isbn ON books
+    FOR EACH ROW EXECUTE FUNCTION books_search_vector_on_write();
+
+CREATE OR REPLACE FUNCTION books_search_vector_on_link_change() RETURNS trigger AS $$
+DECLARE
+    changed_book_id BIGINT := CASE WHEN TG_OP = 'DELETE' THEN OLD.book_id ELSE NEW.book_id END;
+BEGIN
+    UPDATE books b
+    SET search_vector = books_search_document(b.id, b.title, b.isbn)
+    WHERE b.id = changed_book_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER book_authors_search_vector
+    AFTER INSERT OR DELETE ON book_authors
+    FOR EACH ROW EXECUTE FUNCTION books_search_vector_on_link_change();
+
+CREATE TRIGGER book_categories_search_vector
+    AFTER INSERT OR DELETE ON book_categories
+    FOR EACH ROW EXECUTE FUNCTION books_search_vector_on_link_change();
+
+CREATE OR REPLACE FUNCTION books_search_vector_on_author_rename() RETURNS trigger AS $$
+BEGIN
+    UPDATE books b
+    SET search_vector = books_search_document(b.id, b.title, b.isbn)
+    WHERE b.id IN (SELECT ba.book_id FROM book_authors ba WHERE ba.author_id = NEW.id);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER authors_search_vector
+    AFTER UPDATE OF name ON authors
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name)
+    EXECUTE FUNCTION books_search_vector_on_author_rename();
+
+CREATE OR REPLACE FUNCTION books_search_vector_on_category_rename() RETURNS trigger AS $$
+BEGIN
+    UPDATE books b
+    SET search_vector = books_search_document(b.id, b.title, b.isbn)
+    WHERE b.id IN (SELECT bc.book_id FROM book_categories bc WHERE bc.category_id = NEW.id);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER categories_search_vector
+    AFTER UPDATE OF name ON categories
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name)
+    EXECUTE FUNCTION books_search_vector_on_category_rename();
+
+UPDATE books SET search_vector = books_search_document(id, title, isbn);
+
+CREATE INDEX idx_books_search_vector ON books USING GIN (search_vector);
@@ -0,0 +1,15 @@
+-- findByStatus, including the OVERDUE branch of the overdue listing
+CREATE INDEX idx_book_lendings_status_id ON book_lendings (status, id);
+
+-- findBySubscriberId, findBySubscriberIdAndStatus(In) and countCurrentBorrowingsForSubscriber
+CREATE INDEX idx_book_lendings_subscriber_status ON book_lendings (subscriber_id, status);
+
+-- findByBookIdAndStatus and the book foreign key
+CREATE INDEX idx_book_lendings_book_status ON book_lendings (book_id, status);
+
+-- Overdue lookups and the overdue sweeper only ever look at issued lendings
+CREATE INDEX idx_book_lendings_issued_due_date ON book_lendings (due_date, id) WHERE status = 'ISSUED';
+
+-- Reverse direction of the join table primary keys (book_id, ...)
+CREATE INDEX idx_book_authors_author_id ON book_authors (author_id);
+CREATE INDEX idx_book_categories_category_id ON book_categories (category_id);
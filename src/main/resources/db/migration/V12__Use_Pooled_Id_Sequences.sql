@@ -0,0 +1,9 @@
+-- Hibernate reserves 50 ids per sequence call (pooled optimizer), so inserts no longer need
+-- the generated key back and can be batched. Column defaults still call nextval, so plain SQL
+-- inserts keep working and simply take the upper bound of a block.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE authors_id_seq INCREMENT BY 50;
+ALTER SEQUENCE categories_id_seq INCREMENT BY 50;
+ALTER SEQUENCE books_id_seq INCREMENT BY 50;
+ALTER SEQUENCE subscribers_id_seq INCREMENT BY 50;
+ALTER SEQUENCE book_lendings_id_seq INCREMENT BY 50;
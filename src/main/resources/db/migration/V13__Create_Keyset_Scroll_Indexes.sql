@@ -0,0 +1,5 @@
+-- Keyset scrolling (/scroll endpoints) seeks to (sort column, id) and reads the next rows in index order
+CREATE INDEX idx_books_title_id ON books (title, id);
+CREATE INDEX idx_subscribers_name_id ON subscribers (name, id);
+CREATE INDEX idx_book_lendings_issue_date_id ON book_lendings (issue_date, id);
+CREATE INDEX idx_book_lendings_due_date_id ON book_lendings (due_date, id);
@@ -0,0 +1,2 @@
+-- /api/books/available only ever reads books with a copy on the shelf
+CREATE INDEX idx_books_available_id ON books (id) WHERE available_copies > 0;
@@ -0,0 +1,8 @@
+-- Open lendings per subscriber, kept in step by the lending service so checkouts can enforce
+-- lending.max-active-loans with one conditional update instead of a COUNT over book_lendings
+ALTER TABLE subscribers ADD COLUMN active_loans INTEGER NOT NULL DEFAULT 0;
+
+UPDATE subscribers s
+SET active_loans = (SELECT COUNT(*) FROM book_lendings bl WHERE bl.subscriber_id = s.id AND bl.status <> 'RETURNED');
+
+ALTER TABLE subscribers ADD CONSTRAINT chk_subscribers_active_loans CHECK (active_loans >= 0);
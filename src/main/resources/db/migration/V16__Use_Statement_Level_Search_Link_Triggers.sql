@@ -0,0 +1,35 @@
+-- Link changes rebuild each affected book's search document once per statement instead of once per link row,
+-- so a book saved with many authors or an import rewriting thousands of links costs one pass per statement
+DROP TRIGGER book_authors_search_vector ON book_authors;
+DROP TRIGGER book_categories_search_vector ON book_categories;
+DROP FUNCTION books_search_vector_on_link_change();
+
+CREATE OR REPLACE FUNCTION books_search_vector_on_links_change() RETURNS trigger AS $$
+BEGIN
+    UPDATE books b
+    SET search_vector = books_search_document(b.id, b.title, b.isbn)
+    WHERE b.id IN (SELECT DISTINCT changed_links.book_id FROM changed_links);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A trigger with transition tables fires for one event only, hence separate insert and delete triggers
+CREATE TRIGGER book_authors_search_vector_on_insert
+    AFTER INSERT ON book_authors
+    REFERENCING NEW TABLE AS changed_links
+    FOR EACH STATEMENT EXECUTE FUNCTION books_search_vector_on_links_change();
+
+CREATE TRIGGER book_authors_search_vector_on_delete
+    AFTER DELETE ON book_authors
+    REFERENCING OLD TABLE AS changed_links
+    FOR EACH STATEMENT EXECUTE FUNCTION books_search_vector_on_links_change();
+
+CREATE TRIGGER book_categories_search_vector_on_insert
+    AFTER INSERT ON book_categories
+    REFERENCING NEW TABLE AS changed_links
+    FOR EACH STATEMENT EXECUTE FUNCTION books_search_vector_on_links_change();
+
+CREATE TRIGGER book_categories_search_vector_on_delete
+    AFTER DELETE ON book_categories
+    REFERENCING OLD TABLE AS changed_links
+    FOR EACH STATEMENT EXECUTE FUNCTION books_search_vector_on_links_change();
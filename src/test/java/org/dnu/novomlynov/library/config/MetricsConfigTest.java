@@ -0,0 +1,134 @@
+package org.dnu.novomlynov.library.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.dto.BookLendingDto;
+import org.dnu.novomlynov.library.exception.ResourceNotFoundException;
+import org.dnu.novomlynov.library.job.OverdueLendingSweeper;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.Subscriber;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.SubscriberRepository;
+import org.dnu.novomlynov.library.service.BookLendingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({TestcontainersConfiguration.class})
+@AutoConfigureObservability
+class MetricsConfigTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private BookLendingService bookLendingService;
+    @Autowired
+    private OverdueLendingSweeper overdueLendingSweeper;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Book book;
+    private Subscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        book = bookRepository.save(Book.builder()
+                .title("Metered Title")
+                .isbn("9780000000555")
+                .totalCopies(3)
+                .availableCopies(3)
+                .build());
+        subscriber = subscriberRepository.save(Subscriber.builder()
+                .name("Metered Reader")
+                .email("metered@example.com")
+                .libraryCardNumber("LC-METRICS")
+                .active(true)
+                .build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookLendingRepository.deleteAll();
+        bookRepository.deleteAll();
+        subscriberRepository.deleteAll();
+    }
+
+    @Test
+    void shouldExposeTheLibraryMetersInPrometheusFormat() {
+        // given - one lending returned, one swept to overdue and one failed lookup
+        BookLendingDto returned = issue(LocalDate.now().plusDays(14));
+        bookLendingService.returnBook(returned.getId());
+        issue(LocalDate.now().minusDays(1));
+        overdueLendingSweeper.markOverdueLendings(LocalDate.now());
+        assertThrows(ResourceNotFoundException.class, () -> bookLendingService.getLendingById(-1L));
+
+        // when
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .contains("library_service_invocations_seconds_bucket{exception=\"none\",method=\"issueBook\","
+                        + "outcome=\"success\",service=\"BookLendingServiceImpl\"")
+                .contains("library_service_invocations_seconds_count{exception=\"ResourceNotFoundException\","
+                        + "method=\"getLendingById\",outcome=\"error\",service=\"BookLendingServiceImpl\"}")
+                .contains("spring_data_repository_invocations_seconds_bucket")
+                .contains("library_datasource_saturation{")
+                .contains("library_lending_transitions_total{from=\"none\",to=\"ISSUED\"}")
+                .contains("library_lending_transitions_total{from=\"ISSUED\",to=\"RETURNED\"}")
+                .contains("library_lending_transitions_total{from=\"ISSUED\",to=\"OVERDUE\"}");
+    }
+
+    @Test
+    void shouldCountOnlyCommittedTransitions() {
+        double issuedBefore = transitions("none", "ISSUED");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            issue(LocalDate.now().plusDays(14));
+            status.setRollbackOnly();
+        });
+        assertThat(transitions("none", "ISSUED")).isEqualTo(issuedBefore);
+
+        issue(LocalDate.now().plusDays(14));
+        assertThat(transitions("none", "ISSUED")).isEqualTo(issuedBefore + 1);
+    }
+
+    private double transitions(String from, String to) {
+        Counter counter = meterRegistry.find("library.lending.transitions").tag("from", from).tag("to", to).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private BookLendingDto issue(LocalDate dueDate) {
+        return bookLendingService.issueBook(BookLendingDto.builder()
+                .bookId(book.getId())
+                .subscriberId(subscriber.getId())
+                .issueDate(dueDate.minusDays(14))
+                .dueDate(dueDate)
+                .build());
+    }
+}
@@ -0,0 +1,41 @@
+package org.dnu.novomlynov.library.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PinnedVirtualThreadMonitorTest {
+    private final Object lock = new Object();
+
+    @Test
+    void testReportPinningInsideSynchronized() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (PinnedVirtualThreadMonitor monitor = new PinnedVirtualThreadMonitor(Duration.ofMillis(10), meterRegistry)) {
+            monitor.start();
+
+            Thread.ofVirtual().start(this::sleepWhileHoldingLock).join();
+
+            String site = PinnedVirtualThreadMonitorTest.class.getName() + ".sleepWhileHoldingLock";
+            await().atMost(10, TimeUnit.SECONDS).until(() -> {
+                Timer pinned = meterRegistry.find("library.virtual-threads.pinned").tag("site", site).timer();
+                return pinned != null && pinned.count() == 1;
+            });
+        }
+    }
+
+    private void sleepWhileHoldingLock() {
+        synchronized (lock) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
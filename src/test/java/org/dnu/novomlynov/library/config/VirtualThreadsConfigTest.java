@@ -0,0 +1,45 @@
+package org.dnu.novomlynov.library.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles({"test", "virtual-threads"})
+class VirtualThreadsConfigTest {
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TaskScheduler taskScheduler;
+    @Autowired
+    private SimpleAsyncTaskExecutor applicationTaskExecutor;
+    @Autowired
+    private PinnedVirtualThreadMonitor pinnedVirtualThreadMonitor;
+
+    @Test
+    void shouldGuardThePoolAndRunTasksOnVirtualThreads() throws Exception {
+        assertThat(dataSource.isWrapperFor(ConnectionLimitingDataSource.class)).isTrue();
+        assertThat(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()).isEqualTo(20);
+        assertThat(jdbcTemplate.queryForObject("SELECT 1", Integer.class)).isEqualTo(1);
+
+        assertThat(taskScheduler).isInstanceOf(SimpleAsyncTaskScheduler.class);
+        assertThat(applicationTaskExecutor.submit(() -> Thread.currentThread().isVirtual()).get()).isTrue();
+        assertThat(pinnedVirtualThreadMonitor).isNotNull();
+    }
+}
@@ -0,0 +1,139 @@
+package org.dnu.novomlynov.library.config.security;
+
+import org.dnu.novomlynov.library.service.UserAccountChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtPrincipalResolverTest {
+    private JwtConfigurationProperties jwtProperties;
+    private JwtService jwtService;
+    private LibUserDetailsService userDetailsService;
+    private JwtRevocationList revocationList;
+    private JwtPrincipalResolver resolver;
+    private UserDetails user;
+
+    @BeforeEach
+    void setUp() {
+        jwtProperties = new JwtConfigurationProperties();
+        jwtProperties.setSecret("01234567890123456789012345678901");
+        jwtProperties.setExpiration(1000 * 60 * 60);
+        jwtService = new JwtService(jwtProperties);
+        userDetailsService = mock(LibUserDetailsService.class);
+        revocationList = new JwtRevocationList(jwtProperties);
+        resolver = new JwtPrincipalResolver(jwtService, userDetailsService, revocationList, jwtProperties);
+
+        user = LibUserDetails.builder()
+                .username("testuser")
+                .password("hash")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_LIBRARIAN")))
+                .enabled(true)
+                .build();
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(user);
+    }
+
+    @Test
+    void testResolveLoadsUserOnlyOnce() {
+        String token = jwtService.generateToken(user);
+
+        assertEquals(Optional.of(user), resolver.resolve(token));
+        assertEquals(Optional.of(user), resolver.resolve(token));
+        verify(userDetailsService, times(1)).loadUserByUsername("testuser");
+    }
+
+    @Test
+    void testUserAccountChangeEvictsCachedTokens() {
+        String token = jwtService.generateToken(user);
+        resolver.resolve(token);
+
+        resolver.onUserAccountChanged(new UserAccountChangedEvent("testuser", false));
+        resolver.resolve(token);
+
+        verify(userDetailsService, times(2)).loadUserByUsername("testuser");
+    }
+
+    @Test
+    void testChangeOfAnotherUserKeepsCachedTokens() {
+        String token = jwtService.generateToken(user);
+        resolver.resolve(token);
+
+        resolver.onUserAccountChanged(new UserAccountChangedEvent("otheruser", false));
+        resolver.resolve(token);
+
+        verify(userDetailsService, times(1)).loadUserByUsername("testuser");
+    }
+
+    @Test
+    void testResolveInvalidToken() {
+        assertTrue(resolver.resolve("invalid.token.value").isEmpty());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void testResolveDeletedUser() {
+        String token = jwtService.generateToken(user);
+        when(userDetailsService.loadUserByUsername("testuser")).thenThrow(new UsernameNotFoundException("testuser"));
+
+        assertTrue(resolver.resolve(token).isEmpty());
+    }
+
+    @Test
+    void testResolveDisabledUser() {
+        String token = jwtService.generateToken(user);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(LibUserDetails.builder()
+                .username("testuser")
+                .authorities(List.of())
+                .enabled(false)
+                .build());
+
+        assertTrue(resolver.resolve(token).isEmpty());
+    }
+
+    @Test
+    void testStatelessResolveUsesClaimsOnly() {
+        UserDetails principal = statelessResolver().resolve(jwtService.generateToken(user)).orElseThrow();
+
+        assertEquals("testuser", principal.getUsername());
+        assertEquals(user.getAuthorities(), principal.getAuthorities());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void testStatelessResolveRejectsInactiveToken() {
+        UserDetails inactive = LibUserDetails.builder()
+                .username("testuser")
+                .authorities(List.of())
+                .enabled(false)
+                .build();
+
+        assertTrue(statelessResolver().resolve(jwtService.generateToken(inactive)).isEmpty());
+    }
+
+    @Test
+    void testStatelessResolveRejectsRevokedToken() {
+        JwtPrincipalResolver statelessResolver = statelessResolver();
+        String token = jwtService.generateToken(user);
+
+        revocationList.onUserAccountChanged(new UserAccountChangedEvent("otheruser", true));
+        assertTrue(statelessResolver.resolve(token).isPresent());
+
+        revocationList.onUserAccountChanged(new UserAccountChangedEvent("testuser", false));
+        assertTrue(statelessResolver.resolve(token).isPresent());
+
+        revocationList.onUserAccountChanged(new UserAccountChangedEvent("testuser", true));
+        assertTrue(statelessResolver.resolve(token).isEmpty());
+    }
+
+    private JwtPrincipalResolver statelessResolver() {
+        jwtProperties.setStateless(true);
+        return new JwtPrincipalResolver(jwtService, userDetailsService, revocationList, jwtProperties);
+    }
+}
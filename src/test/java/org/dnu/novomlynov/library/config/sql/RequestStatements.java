@@ -0,0 +1,56 @@
+package org.dnu.novomlynov.library.config.sql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reads how many statements the server ran for one request from library.http.statements, so tests can lock
+ * the statement count of an endpoint in. The request has to complete on the calling thread, as with MockMvc.
+ */
+public class RequestStatements {
+    private final MeterRegistry meterRegistry;
+
+    @FunctionalInterface
+    public interface Request {
+        void perform() throws Exception;
+    }
+
+    public RequestStatements(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public long count(String method, String uriPattern, Request request) throws Exception {
+        double before = total(method, uriPattern);
+        long requestsBefore = requests(method, uriPattern);
+        request.perform();
+        assertThat(requests(method, uriPattern) - requestsBefore)
+                .as("requests recorded for %s %s", method, uriPattern)
+                .isEqualTo(1);
+        return (long) (total(method, uriPattern) - before);
+    }
+
+    public void assertCount(String method, String uriPattern, long expected, Request request) throws Exception {
+        assertThat(count(method, uriPattern, request))
+                .as("statements run for %s %s", method, uriPattern)
+                .isEqualTo(expected);
+    }
+
+    private double total(String method, String uriPattern) {
+        DistributionSummary summary = summary(method, uriPattern);
+        return summary == null ? 0 : summary.totalAmount();
+    }
+
+    private long requests(String method, String uriPattern) {
+        DistributionSummary summary = summary(method, uriPattern);
+        return summary == null ? 0 : summary.count();
+    }
+
+    private DistributionSummary summary(String method, String uriPattern) {
+        return meterRegistry.find("library.http.statements")
+                .tag("method", method)
+                .tag("uri", uriPattern)
+                .summary();
+    }
+}
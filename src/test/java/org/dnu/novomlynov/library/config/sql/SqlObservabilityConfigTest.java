@@ -0,0 +1,80 @@
+package org.dnu.novomlynov.library.config.sql;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.model.Author;
+import org.dnu.novomlynov.library.repository.AuthorRepository;
+import org.dnu.novomlynov.library.service.AuthorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sql-observability.slow-query-threshold=0ms",
+        "sql-observability.sample-rate=0",
+        "sql-observability.query-budget=1"
+})
+@Import({TestcontainersConfiguration.class})
+// The production settings, the Docker image ships this file as its application.properties
+@TestPropertySource(locations = "file:application-prod.properties")
+@ExtendWith(OutputCaptureExtension.class)
+class SqlObservabilityConfigTest {
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private Environment environment;
+
+    @AfterEach
+    void cleanUp() {
+        authorRepository.deleteAll();
+    }
+
+    @Test
+    void shouldLogSlowQueriesWithTheirParametersAndCaller(CapturedOutput output) {
+        authorRepository.save(Author.builder().name("Observed Author").build());
+
+        authorService.searchAuthors("Observed");
+
+        assertThat(dataSource).isInstanceOf(ProxyDataSource.class);
+        assertThat(output).contains("in AuthorServiceImpl.searchAuthors: select")
+                .containsIgnoringCase("[%Observed%]");
+        // Checked on the setting, other cached contexts may echo statements while the output is captured
+        assertThat(environment.getProperty("spring.jpa.show-sql", Boolean.class)).isFalse();
+    }
+
+    @Test
+    void shouldReportRequestsOverTheQueryBudget(CapturedOutput output) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/auth/login",
+                new HttpEntity<>("{\"username\":\"admin\",\"password\":\"admin\"}", headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(output).containsPattern("POST /api/auth/login ran \\d+ statements, over the budget of 1");
+    }
+}
@@ -1,9 +1,11 @@
 package org.dnu.novomlynov.library.controller;
 
+import org.dnu.novomlynov.library.config.security.JwtPrincipalResolver;
 import org.dnu.novomlynov.library.config.security.JwtService;
 import org.dnu.novomlynov.library.config.security.LibUserDetailsService;
 import org.dnu.novomlynov.library.config.security.PasswordConfig;
 import org.dnu.novomlynov.library.config.security.SecurityConfig;
+import org.dnu.novomlynov.library.exception.PasswordHashingRejectedException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -34,6 +36,9 @@ class AuthControllerTest {
     @MockitoBean
     private LibUserDetailsService libUserDetailsService;
 
+    @MockitoBean
+    private JwtPrincipalResolver jwtPrincipalResolver;
+
     @Test
     void shouldReturnUnauthorizedForInvalidLogin() throws Exception {
         when(authenticationManager.authenticate(any())).thenThrow(new RuntimeException("Invalid login"));
@@ -44,6 +49,17 @@ class AuthControllerTest {
                 .andExpect(content().string("Invalid credentials!"));
     }
 
+    @Test
+    void shouldReturnTooManyRequestsWhenHashingIsSaturated() throws Exception {
+        when(authenticationManager.authenticate(any()))
+                .thenThrow(new PasswordHashingRejectedException("Too many concurrent password checks"));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/auth/login")
+                .contentType("application/json")
+                .content("{\"username\":\"valid\",\"password\":\"correct\"}"))
+                .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"));
+    }
+
     @Test
     void shouldReturnOkForValidLogin() throws Exception {
         // Mock successful authentication and token generation
@@ -0,0 +1,114 @@
+package org.dnu.novomlynov.library.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.dto.BookLendingDto;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.Subscriber;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.SubscriberRepository;
+import org.dnu.novomlynov.library.service.BookLendingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({TestcontainersConfiguration.class})
+public class BookLendingControllerE2eTest {
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private BookLendingService bookLendingService;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        Book book = bookRepository.save(Book.builder()
+                .title("Exported Title")
+                .isbn("9780000000777")
+                .totalCopies(3)
+                .availableCopies(3)
+                .build());
+        Subscriber subscriber = subscriberRepository.save(Subscriber.builder()
+                .name("Auditor")
+                .email("auditor@example.com")
+                .libraryCardNumber("LC-EXPORT")
+                .active(true)
+                .build());
+        for (int i = 0; i < 3; i++) {
+            bookLendingService.issueBook(BookLendingDto.builder()
+                    .bookId(book.getId())
+                    .subscriberId(subscriber.getId())
+                    .dueDate(LocalDate.now().plusDays(14))
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookLendingRepository.deleteAll();
+        bookRepository.deleteAll();
+        subscriberRepository.deleteAll();
+    }
+
+    @Test
+    void shouldStreamLendingsAsNdjson() throws Exception {
+        ResponseEntity<String> response = export(LocalDate.now(), LocalDate.now().plusDays(1));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(response.getHeaders().getContentDisposition().getFilename()).endsWith(".ndjson");
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(objectMapper.readTree(lines[2]).get("book").get("title").asText()).isEqualTo("Exported Title");
+    }
+
+    @Test
+    void shouldRejectAnEmptyPeriod() {
+        ResponseEntity<String> response = export(LocalDate.now(), LocalDate.now());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private ResponseEntity<String> export(LocalDate from, LocalDate to) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(login());
+        return restTemplate.exchange("/api/lendings/export?from=" + from + "&to=" + to, HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+    }
+
+    private String login() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/auth/login",
+                new HttpEntity<>("{\"username\":\"admin\",\"password\":\"admin\"}", headers), String.class);
+        try {
+            return objectMapper.readTree(response.getBody()).get("token").asText();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.dnu.novomlynov.library.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.config.sql.RequestStatements;
+import org.dnu.novomlynov.library.model.Author;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.BookLending;
+import org.dnu.novomlynov.library.model.Category;
+import org.dnu.novomlynov.library.model.LendingStatus;
+import org.dnu.novomlynov.library.model.Subscriber;
+import org.dnu.novomlynov.library.repository.AuthorRepository;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.CategoryRepository;
+import org.dnu.novomlynov.library.repository.SubscriberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles("test")
+class StatementCountControllerTest {
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+
+    private RequestStatements requestStatements;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        requestStatements = new RequestStatements(meterRegistry);
+        List<Author> authors = authorRepository.saveAll(IntStream.range(0, 4)
+                .mapToObj(i -> Author.builder().name("Counted Author " + i).build())
+                .toList());
+        List<Category> categories = categoryRepository.saveAll(IntStream.range(0, 4)
+                .mapToObj(i -> Category.builder().name("Counted Category " + i).build())
+                .toList());
+        List<Book> books = bookRepository.saveAll(IntStream.range(0, PAGE_SIZE)
+                .mapToObj(i -> Book.builder()
+                        .title("Counted Book " + i)
+                        .isbn("COUNT-" + i)
+                        .totalCopies(2)
+                        .availableCopies(1)
+                        .authors(Set.of(authors.get(i % 4), authors.get((i + 1) % 4)))
+                        .categories(Set.of(categories.get(i % 4), categories.get((i + 1) % 4)))
+                        .build())
+                .toList());
+        List<Subscriber> subscribers = subscriberRepository.saveAll(IntStream.range(0, PAGE_SIZE)
+                .mapToObj(i -> Subscriber.builder()
+                        .name("Counted Reader " + i)
+                        .email("counted" + i + "@example.com")
+                        .libraryCardNumber("LC-COUNT-" + i)
+                        .active(true)
+                        .build())
+                .toList());
+        bookLendingRepository.saveAll(IntStream.range(0, PAGE_SIZE)
+                .mapToObj(i -> BookLending.builder()
+                        .book(books.get(i))
+                        .subscriber(subscribers.get(i))
+                        .issueDate(LocalDate.now())
+                        .dueDate(LocalDate.now().plusDays(14))
+                        .status(LendingStatus.ISSUED)
+                        .build())
+                .toList());
+        // Every request starts cold, cached authors and categories would hide statements
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookLendingRepository.deleteAll();
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        categoryRepository.deleteAll();
+        subscriberRepository.deleteAll();
+    }
+
+    @Test
+    void shouldListBooksWithAFixedNumberOfStatements() throws Exception {
+        // page, count, authors, categories
+        requestStatements.assertCount("GET", "/api/books", 4, () -> mockMvc.perform(get("/api/books")
+                        .param("size", String.valueOf(PAGE_SIZE))
+                        .with(user("librarian").roles("LIBRARIAN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(PAGE_SIZE)));
+    }
+
+    @Test
+    void shouldListLendingsWithAFixedNumberOfStatements() throws Exception {
+        // page with book and subscriber joined, count
+        requestStatements.assertCount("GET", "/api/lendings", 2, () -> mockMvc.perform(get("/api/lendings")
+                        .param("size", String.valueOf(PAGE_SIZE))
+                        .with(user("librarian").roles("LIBRARIAN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(PAGE_SIZE)));
+    }
+}
@@ -0,0 +1,186 @@
+package org.dnu.novomlynov.library.job;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.BookLending;
+import org.dnu.novomlynov.library.model.LendingStatus;
+import org.dnu.novomlynov.library.model.Subscriber;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.SubscriberRepository;
+import org.dnu.novomlynov.library.service.BookLendingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(properties = "lending.availability-reconciliation-batch-size=2")
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles("test")
+class AvailabilityReconcilerTest {
+
+    @Autowired
+    private AvailabilityReconciler availabilityReconciler;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private BookLendingService bookLendingService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Subscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        subscriber = subscriberRepository.save(Subscriber.builder()
+                .name("Reconciled Reader")
+                .email("reconciled@example.com")
+                .libraryCardNumber("LC-RECONCILE")
+                .active(true)
+                .build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookLendingRepository.deleteAll();
+        bookRepository.deleteAll();
+        subscriberRepository.deleteAll();
+    }
+
+    @Test
+    void shouldCorrectCountersThatDriftedFromTheOpenLendings() {
+        // given - one copy out and one returned, but the counter still says all three are in
+        Book overCounted = book("RECON-1", 3, 3);
+        lend(overCounted, LendingStatus.ISSUED);
+        lend(overCounted, LendingStatus.RETURNED);
+        // nothing is lent, but the counter says no copy is in
+        Book underCounted = book("RECON-2", 2, 0);
+        // in sync, an overdue lending is still open
+        Book inSync = book("RECON-3", 2, 1);
+        lend(inSync, LendingStatus.OVERDUE);
+        double driftBefore = meterRegistry.counter("library.books.availability.drift").count();
+        double correctedBefore = meterRegistry.counter("library.books.availability.corrected").count();
+
+        // when
+        int corrected = availabilityReconciler.reconcileAvailableCopies();
+
+        // then
+        assertThat(corrected).isEqualTo(2);
+        assertThat(availableCopies(overCounted)).isEqualTo(2);
+        assertThat(availableCopies(underCounted)).isEqualTo(2);
+        assertThat(availableCopies(inSync)).isEqualTo(1);
+        assertThat(meterRegistry.counter("library.books.availability.drift").count() - driftBefore)
+                .isEqualTo(3);
+        assertThat(meterRegistry.counter("library.books.availability.corrected").count() - correctedBefore)
+                .isEqualTo(2);
+        assertThat(availabilityReconciler.reconcileAvailableCopies()).isZero();
+    }
+
+    @Test
+    void shouldCorrectActiveLoansThatDriftedFromTheOpenLendings() {
+        // given - two lendings written without the service, so the counter still says none are open
+        Book book = book("RECON-4", 3, 1);
+        lend(book, LendingStatus.ISSUED);
+        lend(book, LendingStatus.OVERDUE);
+        lend(book, LendingStatus.RETURNED);
+        // nothing is lent, but the counter says three loans are open
+        Subscriber overCounted = subscriberRepository.save(Subscriber.builder()
+                .name("Over Counted Reader")
+                .email("over-counted@example.com")
+                .libraryCardNumber("LC-RECONCILE-2")
+                .active(true)
+                .build());
+        transactionTemplate.executeWithoutResult(status ->
+                subscriberRepository.reserveLoans(overCounted.getId(), 3, 10));
+        double driftBefore = meterRegistry.counter("library.subscribers.loans.drift").count();
+
+        // when
+        int corrected = availabilityReconciler.reconcileActiveLoans();
+
+        // then
+        assertThat(corrected).isEqualTo(2);
+        assertThat(activeLoans(subscriber)).isEqualTo(2);
+        assertThat(activeLoans(overCounted)).isZero();
+        assertThat(meterRegistry.counter("library.subscribers.loans.drift").count() - driftBefore).isEqualTo(5);
+        assertThat(availabilityReconciler.reconcileActiveLoans()).isZero();
+    }
+
+    @Test
+    void shouldMakeAReturnOnADriftedBookWaitForTheBatch() throws Exception {
+        // given - the only copy is out, but the counter has drifted up to the total
+        Book drifted = book("RECON-5", 1, 1);
+        Long lendingId = lend(drifted, LendingStatus.ISSUED).getId();
+        transactionTemplate.executeWithoutResult(status ->
+                subscriberRepository.reserveLoans(subscriber.getId(), 1, 10));
+
+        // when - the return runs while the batch holding the book is still open
+        CompletableFuture<?> returned = transactionTemplate.execute(status -> {
+            List<Long> ids = bookRepository.lockBatchAfter(drifted.getId() - 1, 1);
+            CompletableFuture<?> pending = CompletableFuture.runAsync(() -> bookLendingService.returnBook(lendingId));
+            // the return has to queue behind the batch instead of committing past it
+            await().atMost(Duration.ofSeconds(10)).until(() -> jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'", Integer.class) > 0);
+            assertThat(pending).isNotDone();
+            bookRepository.reconcileAvailableCopies(ids);
+            return pending;
+        });
+        returned.get(10, TimeUnit.SECONDS);
+
+        // then - the batch saw the lending open and the return gave the copy back after it
+        assertThat(availableCopies(drifted)).isEqualTo(1);
+        assertThat(activeLoans(subscriber)).isZero();
+        assertThat(availabilityReconciler.reconcileAvailableCopies()).isZero();
+    }
+
+    private Book book(String isbn, int totalCopies, int availableCopies) {
+        return bookRepository.save(Book.builder()
+                .title("Book " + isbn)
+                .isbn(isbn)
+                .totalCopies(totalCopies)
+                .availableCopies(availableCopies)
+                .build());
+    }
+
+    private BookLending lend(Book book, LendingStatus status) {
+        return bookLendingRepository.save(BookLending.builder()
+                .book(book)
+                .subscriber(subscriber)
+                .issueDate(LocalDate.now().minusDays(20))
+                .dueDate(LocalDate.now().minusDays(6))
+                .returnDate(status == LendingStatus.RETURNED ? LocalDate.now() : null)
+                .status(status)
+                .build());
+    }
+
+    private int activeLoans(Subscriber subscriber) {
+        return subscriberRepository.findById(subscriber.getId()).orElseThrow().getActiveLoans();
+    }
+
+    private int availableCopies(Book book) {
+        return bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies();
+    }
+}
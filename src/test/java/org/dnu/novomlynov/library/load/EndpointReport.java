@@ -0,0 +1,10 @@
+package org.dnu.novomlynov.library.load;
+
+public record EndpointReport(String endpoint,
+                             long requests,
+                             long errors,
+                             double requestsPerSecond,
+                             double p50Millis,
+                             double p99Millis,
+                             double p999Millis) {
+}
@@ -0,0 +1,68 @@
+package org.dnu.novomlynov.library.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LatencyRecorder {
+    private final Map<String, Samples> samplesByEndpoint = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long latencyNanos, boolean error) {
+        samplesByEndpoint.computeIfAbsent(endpoint, e -> new Samples()).add(latencyNanos, error);
+    }
+
+    public List<EndpointReport> report(Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1_000_000_000d;
+        List<EndpointReport> reports = new ArrayList<>();
+        samplesByEndpoint.forEach((endpoint, samples) -> {
+            long[] latencies = samples.sorted();
+            reports.add(new EndpointReport(endpoint,
+                    latencies.length,
+                    samples.errors(),
+                    latencies.length / seconds,
+                    percentileMillis(latencies, 0.50),
+                    percentileMillis(latencies, 0.99),
+                    percentileMillis(latencies, 0.999)));
+        });
+        reports.sort((a, b) -> a.endpoint().compareTo(b.endpoint()));
+        return reports;
+    }
+
+    // Nearest-rank percentile
+    private static double percentileMillis(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sortedLatencies.length);
+        return sortedLatencies[Math.max(rank - 1, 0)] / 1_000_000d;
+    }
+
+    private static final class Samples {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        synchronized void add(long latencyNanos, boolean error) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            if (error) {
+                errors++;
+            }
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        synchronized long errors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.dnu.novomlynov.library.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.load.LoadTestRunner.Operation;
+import org.dnu.novomlynov.library.load.LoadTestRunner.Outcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Drives a lending workload against the full application. Opt-in, e.g.
+// mvn test -Dtest=LendingWorkloadLoadTest -Dload.test=true -Dload.duration=60 -Dload.concurrency=32
+//     -Dload.mix=search=40,issue=20,return=20,books=10,lendings=10
+// Results go to target/load-report-platform.json. Adding -Dspring.profiles.active=virtual-threads runs the same
+// workload on virtual threads and writes target/load-report-virtual.json; compare the two at a concurrency well
+// above the Tomcat thread pool (200), e.g. -Dload.concurrency=1000.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({TestcontainersConfiguration.class})
+@EnabledIfSystemProperty(named = "load.test", matches = "true")
+@Slf4j
+class LendingWorkloadLoadTest {
+    private static final List<String> WORDS = List.of("river", "night", "garden", "winter", "city",
+            "stone", "light", "ocean", "shadow", "history", "empire", "silence", "journey", "mirror", "forest");
+
+    private final int books = Integer.getInteger("load.books", 5_000);
+    private final int authors = Integer.getInteger("load.authors", 500);
+    private final int subscribers = Integer.getInteger("load.subscribers", 1_000);
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+    private final Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 10));
+    private final Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 30));
+    private final Map<String, Integer> mix = parseMix(
+            System.getProperty("load.mix", "search=40,issue=20,return=20,books=10,lendings=10"));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Queue<Long> openLendings = new ConcurrentLinkedQueue<>();
+    private String token;
+    private List<Long> bookIds;
+    private List<Long> subscriberIds;
+
+    @Test
+    void lendingWorkload() throws Exception {
+        seed();
+        token = login();
+
+        List<Operation> operations = List.of(
+                new Operation("GET /api/books/search", mix.getOrDefault("search", 0), this::search),
+                new Operation("POST /api/lendings/issue", mix.getOrDefault("issue", 0), this::issue),
+                new Operation("PUT /api/lendings/{id}/return", mix.getOrDefault("return", 0), this::returnLending),
+                new Operation("GET /api/books", mix.getOrDefault("books", 0), this::listBooks),
+                new Operation("GET /api/lendings", mix.getOrDefault("lendings", 0), this::listLendings));
+
+        List<EndpointReport> reports = new LoadTestRunner(operations).run(concurrency, warmup, duration);
+
+        writeReport(reports);
+        assertThat(reports).isNotEmpty();
+        assertThat(reports).allSatisfy(report -> assertThat(report.errors()).isZero());
+    }
+
+    private void seed() {
+        log.info("Seeding {} books, {} authors and {} subscribers", books, authors, subscribers);
+        jdbcTemplate.update("INSERT INTO authors (name) SELECT 'Load Author ' || g FROM generate_series(1, ?) g",
+                authors);
+        jdbcTemplate.update("INSERT INTO books (title, isbn, total_copies, available_copies) " +
+                        "SELECT 'The ' || (ARRAY[" + wordArray() + "])[1 + g % " + WORDS.size() + "] || ' of the ' " +
+                        "|| (ARRAY[" + wordArray() + "])[1 + (g / " + WORDS.size() + ") % " + WORDS.size() + "] " +
+                        "|| ' ' || g, 'LOAD-' || g, 3, 3 FROM generate_series(1, ?) g",
+                books);
+        jdbcTemplate.update("INSERT INTO book_authors (book_id, author_id) " +
+                "SELECT b.id, a.id FROM books b " +
+                "JOIN authors a ON a.name = 'Load Author ' || (substring(b.isbn FROM 6)::int % ? + 1) " +
+                "WHERE b.isbn LIKE 'LOAD-%'", authors);
+        jdbcTemplate.update("INSERT INTO subscribers (name, email, library_card_number) " +
+                "SELECT 'Load Subscriber ' || g, 'load' || g || '@example.com', 'LOAD-' || g " +
+                "FROM generate_series(1, ?) g", subscribers);
+        jdbcTemplate.execute("ANALYZE");
+
+        // Ids are not contiguous (pooled sequences)
+        bookIds = jdbcTemplate.queryForList("SELECT id FROM books WHERE isbn LIKE 'LOAD-%'", Long.class);
+        subscriberIds = jdbcTemplate.queryForList(
+                "SELECT id FROM subscribers WHERE library_card_number LIKE 'LOAD-%'", Long.class);
+    }
+
+    private String login() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"admin\",\"password\":\"admin\"}")));
+        assertThat(response.statusCode()).isEqualTo(200);
+        return objectMapper.readTree(response.body()).get("token").asText();
+    }
+
+    private Outcome search() throws IOException, InterruptedException {
+        String word = WORDS.get(ThreadLocalRandom.current().nextInt(WORDS.size()));
+        return expect(get("/api/books/search?size=20&query=" + word), 200);
+    }
+
+    private Outcome issue() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> body = Map.of(
+                "bookId", bookIds.get(random.nextInt(bookIds.size())),
+                "subscriberId", subscriberIds.get(random.nextInt(subscriberIds.size())),
+                "issueDate", LocalDate.now().toString(),
+                "dueDate", LocalDate.now().plusDays(14).toString());
+        HttpResponse<String> response = send(authorized("/api/lendings/issue")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body))));
+        if (response.statusCode() == 201) {
+            JsonNode lending = objectMapper.readTree(response.body());
+            openLendings.add(lending.get("id").asLong());
+            return Outcome.OK;
+        }
+        // All copies of the title are out
+        return response.statusCode() == 409 ? Outcome.OK : Outcome.ERROR;
+    }
+
+    private Outcome returnLending() throws IOException, InterruptedException {
+        Long lendingId = openLendings.poll();
+        if (lendingId == null) {
+            return Outcome.SKIPPED;
+        }
+        return expect(send(authorized("/api/lendings/" + lendingId + "/return")
+                .PUT(HttpRequest.BodyPublishers.noBody())), 200);
+    }
+
+    private Outcome listBooks() throws IOException, InterruptedException {
+        int page = ThreadLocalRandom.current().nextInt(Math.max(books / 20, 1));
+        return expect(get("/api/books?size=20&page=" + page), 200);
+    }
+
+    private Outcome listLendings() throws IOException, InterruptedException {
+        return expect(get("/api/lendings?size=20&sortOrder=desc"), 200);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(authorized(path).GET());
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return HttpRequest.newBuilder(uri(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static Outcome expect(HttpResponse<String> response, int status) {
+        return response.statusCode() == status ? Outcome.OK : Outcome.ERROR;
+    }
+
+    private void writeReport(List<EndpointReport> reports) throws IOException {
+        reports.forEach(report -> log.info("{}: {} requests, {} errors, {} rps, p50 {} ms, p99 {} ms, p999 {} ms",
+                report.endpoint(), report.requests(), report.errors(),
+                String.format("%.1f", report.requestsPerSecond()), String.format("%.2f", report.p50Millis()),
+                String.format("%.2f", report.p99Millis()), String.format("%.2f", report.p999Millis())));
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("threads", virtualThreads ? "virtual" : "platform");
+        document.put("concurrency", concurrency);
+        document.put("durationSeconds", duration.toSeconds());
+        document.put("mix", mix);
+        document.put("endpoints", reports);
+        Path target = Path.of("target", "load-report-" + (virtualThreads ? "virtual" : "platform") + ".json");
+        Files.createDirectories(target.getParent());
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(target.toFile(), document);
+        log.info("Load report written to {}", target.toAbsolutePath());
+    }
+
+    private static String wordArray() {
+        return String.join(",", WORDS.stream().map(word -> "'" + word + "'").toList());
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
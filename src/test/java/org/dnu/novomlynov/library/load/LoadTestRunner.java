@@ -0,0 +1,96 @@
+package org.dnu.novomlynov.library.load;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+public class LoadTestRunner {
+
+    public enum Outcome {
+        OK, ERROR,
+        // Nothing to do right now (e.g. no open lending to return), not recorded
+        SKIPPED
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        Outcome execute() throws Exception;
+    }
+
+    public record Operation(String endpoint, int weight, Action action) {
+    }
+
+    private final List<Operation> operations;
+    private final int totalWeight;
+
+    public LoadTestRunner(List<Operation> operations) {
+        this.operations = operations.stream().filter(operation -> operation.weight() > 0).toList();
+        this.totalWeight = this.operations.stream().mapToInt(Operation::weight).sum();
+        if (totalWeight == 0) {
+            throw new IllegalArgumentException("At least one operation needs a positive weight");
+        }
+    }
+
+    public List<EndpointReport> run(int concurrency, Duration warmup, Duration duration) throws Exception {
+        if (!warmup.isZero()) {
+            log.info("Warming up for {} with {} workers", warmup, concurrency);
+            drive(concurrency, warmup, new LatencyRecorder());
+        }
+        log.info("Measuring for {} with {} workers", duration, concurrency);
+        LatencyRecorder recorder = new LatencyRecorder();
+        Duration elapsed = drive(concurrency, duration, recorder);
+        return recorder.report(elapsed);
+    }
+
+    private Duration drive(int concurrency, Duration duration, LatencyRecorder recorder) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Operation operation = pick();
+                        long begin = System.nanoTime();
+                        Outcome outcome;
+                        try {
+                            outcome = operation.action().execute();
+                        } catch (Exception e) {
+                            log.debug("{} failed: {}", operation.endpoint(), e.getMessage());
+                            outcome = Outcome.ERROR;
+                        }
+                        if (outcome != Outcome.SKIPPED) {
+                            recorder.record(operation.endpoint(), System.nanoTime() - begin, outcome == Outcome.ERROR);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private Operation pick() {
+        int point = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            point -= operation.weight();
+            if (point < 0) {
+                return operation;
+            }
+        }
+        return operations.getLast();
+    }
+}
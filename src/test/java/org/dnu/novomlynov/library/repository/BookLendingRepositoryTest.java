@@ -1,20 +1,29 @@
 package org.dnu.novomlynov.library.repository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import org.dnu.novomlynov.library.TestcontainersConfiguration;
 import org.dnu.novomlynov.library.model.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -39,6 +48,12 @@ public class BookLendingRepositoryTest {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private Book book1;
     private Book book2;
     private Subscriber subscriber1;
@@ -388,4 +403,119 @@ public class BookLendingRepositoryTest {
         assertThat(subscriber1Borrowings).isEqualTo(2);
         assertThat(subscriber2Borrowings).isEqualTo(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldMarkOverdueLendingsInBatches() {
+        // given
+        LocalDate today = LocalDate.now();
+        bookLendingRepository.saveAll(List.of(
+                overdueLending(book1, subscriber1, today.minusDays(3)),
+                overdueLending(book2, subscriber1, today.minusDays(2)),
+                overdueLending(book1, subscriber2, today.minusDays(1)),
+                BookLending.builder()
+                        .book(book2)
+                        .subscriber(subscriber2)
+                        .issueDate(today)
+                        .dueDate(today) // due today, not overdue yet
+                        .status(LendingStatus.ISSUED)
+                        .build()));
+        bookLendingRepository.flush();
+
+        // when
+        int firstBatch = bookLendingRepository.markOverdue(today, 2);
+        int secondBatch = bookLendingRepository.markOverdue(today, 2);
+        int thirdBatch = bookLendingRepository.markOverdue(today, 2);
+
+        // then
+        assertThat(firstBatch).isEqualTo(2);
+        assertThat(secondBatch).isEqualTo(1);
+        assertThat(thirdBatch).isZero();
+        assertThat(bookLendingRepository.findByStatus(LendingStatus.OVERDUE, PageRequest.of(0, 10)).getTotalElements())
+                .isEqualTo(3);
+        assertThat(bookLendingRepository.findByStatus(LendingStatus.ISSUED, PageRequest.of(0, 10)).getTotalElements())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldFindOverdueLendingsWhetherSweptOrNot() {
+        // given
+        LocalDate today = LocalDate.now();
+        BookLending swept = overdueLending(book1, subscriber1, today.minusDays(5));
+        swept.setStatus(LendingStatus.OVERDUE);
+        BookLending notSweptYet = overdueLending(book2, subscriber2, today.minusDays(1));
+        bookLendingRepository.saveAll(List.of(swept, notSweptYet,
+                BookLending.builder()
+                        .book(book2)
+                        .subscriber(subscriber1)
+                        .issueDate(today)
+                        .dueDate(today.plusDays(7))
+                        .status(LendingStatus.ISSUED)
+                        .build()));
+
+        // when
+        Page<BookLending> overdue = bookLendingRepository.findOverdue(today,
+                PageRequest.of(0, 1, Sort.by("dueDate", "id")));
+
+        // then
+        assertThat(overdue.getTotalElements()).isEqualTo(2);
+        assertThat(overdue.getContent()).extracting(BookLending::getId).containsExactly(swept.getId());
+    }
+
+    @Test
+    void shouldBatchLendingInserts() {
+        // given
+        entityManager.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<BookLending> lendings = IntStream.range(0, 200)
+                .mapToObj(i -> overdueLending(i % 2 == 0 ? book1 : book2, subscriber1, LocalDate.now().plusDays(i)))
+                .toList();
+
+        // when
+        bookLendingRepository.saveAll(lendings);
+        entityManager.flush();
+
+        // then - ids come from the pooled sequence, 50 per call, and rows go in batches of 50
+        assertThat(lendings).allSatisfy(lending -> assertThat(lending.getId()).isNotNull());
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(200);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void shouldScrollLendingsWithBookAndSubscriberInOneQuery() {
+        // given
+        LocalDate today = LocalDate.now();
+        bookLendingRepository.saveAll(List.of(
+                overdueLending(book1, subscriber1, today.plusDays(1)),
+                overdueLending(book2, subscriber2, today.plusDays(2)),
+                overdueLending(book1, subscriber2, today.plusDays(3))));
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when
+        Window<BookLending> window = bookLendingRepository.findAllBy(ScrollPosition.keyset(),
+                Sort.by("dueDate", "id"), Limit.of(2));
+        window.forEach(lending -> {
+            assertThat(lending.getBook().getTitle()).isNotNull();
+            assertThat(lending.getSubscriber().getName()).isNotNull();
+        });
+
+        // then
+        assertThat(window.getContent()).extracting(BookLending::getDueDate)
+                .containsExactly(today.plusDays(1), today.plusDays(2));
+        assertThat(window.hasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private BookLending overdueLending(Book book, Subscriber subscriber, LocalDate dueDate) {
+        return BookLending.builder()
+                .book(book)
+                .subscriber(subscriber)
+                .issueDate(dueDate.minusDays(14))
+                .dueDate(dueDate)
+                .status(LendingStatus.ISSUED)
+                .build();
+    }
+}
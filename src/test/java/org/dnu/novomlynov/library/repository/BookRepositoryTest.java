@@ -1,9 +1,13 @@
 package org.dnu.novomlynov.library.repository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import org.dnu.novomlynov.library.TestcontainersConfiguration;
 import org.dnu.novomlynov.library.model.Author;
 import org.dnu.novomlynov.library.model.Book;
 import org.dnu.novomlynov.library.model.Category;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,13 +16,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -37,6 +44,12 @@ public class BookRepositoryTest {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @AfterEach
     void clear() {
         bookRepository.deleteAll();
@@ -206,6 +219,31 @@ public class BookRepositoryTest {
                 .containsExactlyInAnyOrder("1984", "Animal Farm");
     }
 
+    @Test
+    void shouldFindByAuthorAndCategoryId() {
+        // given - author names contain the digits of the other author's id
+        author2.setName("George Orwell " + author1.getId());
+        Book potter = bookRepository.save(createBook("Harry Potter", "9780747532743",
+                Set.of(author1), Set.of(category1)));
+        Book orwell = bookRepository.save(createBook("1984", "9780451524935",
+                Set.of(author2), Set.of(category1, category2)));
+        Book farm = bookRepository.save(createBook("Animal Farm", "9780452284241",
+                Set.of(author2), Set.of(category2)));
+        entityManager.flush();
+
+        // when
+        Page<Book> byAuthor = bookRepository.findByAuthorId(author1.getId(), PageRequest.of(0, 10));
+        Page<Book> byCategory = bookRepository.findByCategoryId(category2.getId(), PageRequest.of(0, 1));
+
+        // then
+        assertThat(byAuthor.getContent()).containsExactly(potter);
+        assertThat(byAuthor.getTotalElements()).isEqualTo(1);
+        assertThat(byCategory.getContent()).containsExactly(orwell);
+        assertThat(byCategory.getTotalElements()).isEqualTo(2);
+        assertThat(bookRepository.findByCategoryId(category2.getId(), PageRequest.of(1, 1)).getContent())
+                .containsExactly(farm);
+    }
+
     @Test
     void shouldSearchBooks() {
         // given
@@ -221,34 +259,122 @@ public class BookRepositoryTest {
         bookRepository.save(book3);
 
         // when - search by title
-        Page<Book> titleSearchPage = bookRepository.search("harry", PageRequest.of(0, 10));
+        List<BookSearchHit> titleSearchHits = bookRepository.search("harry", 10);
         
         // then
-        assertThat(titleSearchPage.getTotalElements()).isEqualTo(1);
-        assertThat(titleSearchPage.getContent().getFirst().getTitle()).isEqualTo("Harry Potter and the Philosopher's Stone");
+        assertThat(titleSearchHits).extracting(BookSearchHit::getId).containsExactly(book1.getId());
 
         // when - search by isbn
-        Page<Book> isbnSearchPage = bookRepository.search("9780452284241", PageRequest.of(0, 10));
+        List<BookSearchHit> isbnSearchHits = bookRepository.search("9780452284241", 10);
         
         // then
-        assertThat(isbnSearchPage.getTotalElements()).isEqualTo(1);
-        assertThat(isbnSearchPage.getContent().getFirst().getTitle()).isEqualTo("Animal Farm");
+        assertThat(isbnSearchHits).extracting(BookSearchHit::getId).containsExactly(book3.getId());
         
         // when - search by author
-        Page<Book> authorSearchPage = bookRepository.search("orwell", PageRequest.of(0, 10));
+        List<BookSearchHit> authorSearchHits = bookRepository.search("orwell", 10);
         
         // then
-        assertThat(authorSearchPage.getTotalElements()).isEqualTo(2);
-        assertThat(authorSearchPage.getContent())
-                .extracting(Book::getTitle)
-                .containsExactlyInAnyOrder("1984", "Animal Farm");
+        assertThat(authorSearchHits).extracting(BookSearchHit::getId)
+                .containsExactlyInAnyOrder(book2.getId(), book3.getId());
                 
         // when - search by category
-        Page<Book> categorySearchPage = bookRepository.search("fantasy", PageRequest.of(0, 10));
+        List<BookSearchHit> categorySearchHits = bookRepository.search("fantasy", 10);
         
         // then
-        assertThat(categorySearchPage.getTotalElements()).isEqualTo(1);
-        assertThat(categorySearchPage.getContent().getFirst().getTitle()).isEqualTo("Harry Potter and the Philosopher's Stone");
+        assertThat(categorySearchHits).extracting(BookSearchHit::getId).containsExactly(book1.getId());
+
+        // when - search by word prefix
+        List<BookSearchHit> prefixSearchHits = bookRepository.search("philos", 10);
+
+        // then
+        assertThat(prefixSearchHits).extracting(BookSearchHit::getId).containsExactly(book1.getId());
+    }
+
+    @Test
+    void shouldRebuildTheSearchDocumentOncePerLinkStatement() {
+        // given
+        entityManager.flush();
+        long updatesBefore = bookUpdatesInTransaction();
+
+        // when - the author links and the category links are inserted as one statement each
+        Book book = bookRepository.saveAndFlush(createBook("Collected Works", "9780000000777",
+                Set.of(author1, author2), Set.of(category1, category2)));
+
+        // then - one rewrite of the book per link table, not one per link row
+        assertThat(bookUpdatesInTransaction() - updatesBefore).isEqualTo(2);
+        assertThat(bookRepository.search("rowling dystopian", 10)).extracting(BookSearchHit::getId)
+                .containsExactly(book.getId());
+    }
+
+    @Test
+    void shouldRankAndPageSearchResults() {
+        // given
+        Book inCategory = bookRepository.save(createBook("Harry Potter and the Chamber of Secrets", "9780747538486",
+                Set.of(author1), Set.of(category1)));
+        Book inTitle = bookRepository.save(createBook("Fantasy Short Stories", "9780000000001",
+                Set.of(author2), Set.of(category2)));
+        Book alsoInCategory = bookRepository.save(createBook("Harry Potter and the Philosopher's Stone", "9780747532743",
+                Set.of(author1), Set.of(category1)));
+
+        // when
+        List<BookSearchHit> firstSlice = bookRepository.search("fantasy", 2);
+        BookSearchHit last = firstSlice.getLast();
+        List<BookSearchHit> secondSlice = bookRepository.searchAfter("fantasy",
+                last.getRank(), last.getId(), 2);
+
+        // then - title matches outrank category matches, ties are broken by id
+        assertThat(firstSlice).extracting(BookSearchHit::getId)
+                .containsExactly(inTitle.getId(), inCategory.getId());
+        assertThat(secondSlice).extracting(BookSearchHit::getId)
+                .containsExactly(alsoInCategory.getId());
+    }
+
+    @Test
+    void shouldFetchPageAssociationsInConstantNumberOfQueries() {
+        // given
+        for (int i = 0; i < 10; i++) {
+            bookRepository.save(createBook("Book " + i, "978000000010" + i,
+                    Set.of(author1, author2), Set.of(category1, category2)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when
+        Page<Book> page = bookRepository.findAll(PageRequest.of(0, 5));
+        bookRepository.fetchAssociations(page.getContent());
+        page.forEach(book -> {
+            assertThat(book.getAuthors()).hasSize(2);
+            assertThat(book.getCategories()).hasSize(2);
+        });
+
+        // then - page, count, authors and categories regardless of the page size
+        assertThat(page.getContent()).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldBatchCatalogInserts() {
+        // given
+        entityManager.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<Author> authors = IntStream.range(0, 100)
+                .mapToObj(i -> Author.builder().name("Batch Author " + i).build())
+                .toList();
+        List<Book> books = IntStream.range(0, 100)
+                .mapToObj(i -> createBook("Batch Book " + i, "978000000200" + i, Set.of(), Set.of()))
+                .toList();
+
+        // when
+        authorRepository.saveAll(authors);
+        bookRepository.saveAll(books);
+        entityManager.flush();
+
+        // then - ids come from the pooled sequences, 50 per call, and rows go in batches of 50
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(200);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(10);
     }
 
     @Test
@@ -263,7 +389,38 @@ public class BookRepositoryTest {
         assertThat(bookRepository.existsByIsbn("nonexistent")).isFalse();
     }
 
+    @Test
+    void shouldFindAvailableBooksByAuthorAndCategory() {
+        // given
+        Book potter = bookRepository.save(createBook("Harry Potter", "9780747532743",
+                Set.of(author1), Set.of(category1)));
+        Book orwell = bookRepository.save(createBook("1984", "9780451524935",
+                Set.of(author2), Set.of(category1, category2)));
+        Book lentOut = createBook("Animal Farm", "9780451526342", Set.of(author2), Set.of(category2));
+        lentOut.setAvailableCopies(0);
+        bookRepository.save(lentOut);
+        PageRequest firstPage = PageRequest.of(0, 10, Sort.by("id"));
+
+        // when & then
+        assertThat(bookRepository.findAvailable(null, null, firstPage).getContent())
+                .containsExactly(potter, orwell);
+        assertThat(bookRepository.findAvailable(author2.getId(), null, firstPage).getContent())
+                .containsExactly(orwell);
+        assertThat(bookRepository.findAvailable(null, category1.getId(), firstPage).getContent())
+                .containsExactly(potter, orwell);
+        assertThat(bookRepository.findAvailable(author1.getId(), category2.getId(), firstPage).getContent())
+                .isEmpty();
+        Page<Book> secondPage = bookRepository.findAvailable(null, null, PageRequest.of(1, 1, Sort.by("id")));
+        assertThat(secondPage.getTotalElements()).isEqualTo(2);
+        assertThat(secondPage.getContent()).containsExactly(orwell);
+    }
+
     // Helper method to create book entities
+    private long bookUpdatesInTransaction() {
+        return ((Number) entityManager.createNativeQuery(
+                "SELECT n_tup_upd FROM pg_stat_xact_user_tables WHERE relname = 'books'").getSingleResult()).longValue();
+    }
+
     private Book createBook(String title, String isbn, Set<Author> authors, Set<Category> categories) {
         return Book.builder()
                 .title(title)
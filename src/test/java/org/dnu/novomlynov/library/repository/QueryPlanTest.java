@@ -0,0 +1,108 @@
+package org.dnu.novomlynov.library.repository;
+
+import org.assertj.core.api.SoftAssertions;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@SpringBootTest
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles("test")
+@Transactional
+public class QueryPlanTest {
+
+    // SQL shapes of the repository queries that must stay index backed
+    private static final List<String> QUERIES = List.of(
+            // findByStatus and its count query
+            "SELECT * FROM book_lendings WHERE status = 'OVERDUE' LIMIT 100",
+            "SELECT count(*) FROM book_lendings WHERE status = 'OVERDUE'",
+            // findBySubscriberId, findBySubscriberIdAndStatus and countCurrentBorrowingsForSubscriber
+            "SELECT * FROM book_lendings WHERE subscriber_id = (SELECT max(id) FROM subscribers) LIMIT 100",
+            "SELECT * FROM book_lendings WHERE subscriber_id = (SELECT max(id) FROM subscribers) AND status = 'ISSUED'",
+            "SELECT count(*) FROM book_lendings WHERE subscriber_id = (SELECT max(id) FROM subscribers) " +
+                    "AND status <> 'RETURNED'",
+            // findByBookIdAndStatus
+            "SELECT * FROM book_lendings WHERE book_id = (SELECT max(id) FROM books) AND status = 'ISSUED'",
+            // findOverdueBooks, findOverdue and markOverdue
+            "SELECT * FROM book_lendings WHERE status = 'ISSUED' AND due_date < CURRENT_DATE",
+            "SELECT * FROM book_lendings WHERE status = 'OVERDUE' OR (status = 'ISSUED' AND due_date < CURRENT_DATE) " +
+                    "ORDER BY due_date, id LIMIT 100",
+            "SELECT id FROM book_lendings WHERE status = 'ISSUED' AND due_date < CURRENT_DATE " +
+                    "ORDER BY id LIMIT 1000 FOR UPDATE SKIP LOCKED",
+            // findByAuthorId and both count queries. The findByCategoryId join is left out: a category holds
+            // 20 of the 1k seeded books, and for a table that small hashing all books is the cheaper plan
+            "SELECT b.* FROM books b JOIN book_authors ba ON ba.book_id = b.id " +
+                    "WHERE ba.author_id = (SELECT max(id) FROM authors) ORDER BY b.id LIMIT 100",
+            "SELECT count(*) FROM book_authors WHERE author_id = (SELECT max(id) FROM authors)",
+            "SELECT count(*) FROM book_categories WHERE category_id = (SELECT max(id) FROM categories)",
+            // findAvailable, unfiltered and by author
+            "SELECT * FROM books WHERE available_copies > 0 ORDER BY id LIMIT 100",
+            "SELECT * FROM books b WHERE b.available_copies > 0 AND EXISTS (SELECT 1 FROM book_authors ba " +
+                    "WHERE ba.book_id = b.id AND ba.author_id = (SELECT max(id) FROM authors)) ORDER BY b.id LIMIT 100",
+            // Keyset scrolling, in the shape Spring Data generates for a (column, id) position
+            "SELECT * FROM books WHERE title > 'Plan Book 5' OR (title = 'Plan Book 5' AND id > 0) " +
+                    "ORDER BY title, id LIMIT 101",
+            "SELECT * FROM subscribers WHERE name > 'Plan Subscriber 5' OR (name = 'Plan Subscriber 5' AND id > 0) " +
+                    "ORDER BY name, id LIMIT 101",
+            "SELECT * FROM book_lendings WHERE id > 100000 ORDER BY id LIMIT 101",
+            "SELECT * FROM book_lendings WHERE due_date > CURRENT_DATE OR (due_date = CURRENT_DATE AND id > 0) " +
+                    "ORDER BY due_date, id LIMIT 101",
+            "SELECT * FROM book_lendings WHERE issue_date < CURRENT_DATE OR (issue_date = CURRENT_DATE AND id < 0) " +
+                    "ORDER BY issue_date DESC, id DESC LIMIT 101",
+            "SELECT * FROM book_lendings WHERE status = 'ISSUED' AND id > 100000 ORDER BY id LIMIT 101"
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        // 200k lendings, 97% of them returned, spread over 5k subscribers and 1k books, a fifth of them lent out
+        jdbcTemplate.execute("INSERT INTO authors (name) SELECT 'Plan Author ' || g FROM generate_series(1, 500) g");
+        jdbcTemplate.execute("INSERT INTO categories (name) SELECT 'Plan Category ' || g FROM generate_series(1, 50) g");
+        jdbcTemplate.execute("INSERT INTO books (title, isbn, total_copies, available_copies) " +
+                "SELECT 'Plan Book ' || g, 'PLAN-' || g, 10, CASE WHEN g % 5 = 0 THEN 0 ELSE 10 END " +
+                "FROM generate_series(1, 1000) g");
+        jdbcTemplate.execute("INSERT INTO subscribers (name, email, library_card_number) " +
+                "SELECT 'Plan Subscriber ' || g, 'plan' || g || '@example.com', 'PLAN-' || g " +
+                "FROM generate_series(1, 5000) g");
+        jdbcTemplate.execute("INSERT INTO book_authors (book_id, author_id) " +
+                "SELECT b.id, a.id FROM books b JOIN authors a " +
+                "ON a.name = 'Plan Author ' || (substring(b.isbn FROM 6)::int % 500 + 1) " +
+                "WHERE b.isbn LIKE 'PLAN-%'");
+        jdbcTemplate.execute("INSERT INTO book_categories (book_id, category_id) " +
+                "SELECT b.id, c.id FROM books b JOIN categories c " +
+                "ON c.name = 'Plan Category ' || (substring(b.isbn FROM 6)::int % 50 + 1) " +
+                "WHERE b.isbn LIKE 'PLAN-%'");
+        // Ids are not contiguous (pooled sequences), so rows are picked by their ordinal
+        jdbcTemplate.execute("INSERT INTO book_lendings (book_id, subscriber_id, issue_date, due_date, status) " +
+                "SELECT b.id, s.id, " +
+                "CURRENT_DATE - 30 + g % 40, CURRENT_DATE - 16 + g % 40, " +
+                "CASE WHEN g % 100 < 2 THEN 'ISSUED' WHEN g % 100 = 2 THEN 'OVERDUE' ELSE 'RETURNED' END " +
+                "FROM generate_series(1, 200000) g " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM books WHERE isbn LIKE 'PLAN-%') b " +
+                "ON b.n = g % 1000 " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM subscribers " +
+                "WHERE library_card_number LIKE 'PLAN-%') s ON s.n = g % 5000");
+        jdbcTemplate.execute("ANALYZE authors, categories, books, book_authors, book_categories, subscribers, " +
+                "book_lendings");
+    }
+
+    @Test
+    void shouldNotFallBackToSequentialScan() {
+        SoftAssertions softly = new SoftAssertions();
+        for (String query : QUERIES) {
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query, String.class));
+            softly.assertThat(plan).as(query).doesNotContain("Seq Scan");
+        }
+        softly.assertAll();
+    }
+}
@@ -0,0 +1,169 @@
+package org.dnu.novomlynov.library.service;
+
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.dto.BookImportError;
+import org.dnu.novomlynov.library.dto.BookImportReport;
+import org.dnu.novomlynov.library.model.Author;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.Category;
+import org.dnu.novomlynov.library.repository.AuthorRepository;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.CategoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles("test")
+class BookImportServiceTest {
+
+    @Autowired
+    private BookImportService bookImportService;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Author existingAuthor;
+    private Category existingCategory;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        existingAuthor = authorRepository.save(Author.builder().name("Existing Author").build());
+        existingCategory = categoryRepository.save(Category.builder().name("Existing Category").build());
+        bookRepository.save(Book.builder()
+                .title("Old Title")
+                .isbn("IMP-1")
+                .totalCopies(2)
+                // One copy is lent out
+                .availableCopies(1)
+                .authors(Set.of(existingAuthor))
+                .categories(Set.of(existingCategory))
+                .build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookLendingRepository.deleteAll();
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void shouldUpsertBooksAndReportInvalidRows() {
+        BookImportReport report = importLines(
+                "{\"title\":\"New Book\",\"isbn\":\"IMP-2\",\"publicationDate\":\"2001-02-03\",\"totalCopies\":3," +
+                        "\"authors\":[\"Existing Author\",\"New Author\"],\"categories\":[\"Existing Category\"]}",
+                "{\"title\":\"New Title\",\"isbn\":\"IMP-1\",\"totalCopies\":5," +
+                        "\"authors\":[\"New Author\"],\"categories\":[\"New Category\"]}",
+                "{not json",
+                "",
+                "{\"title\":\"No ISBN\",\"totalCopies\":1,\"authors\":[\"A\"],\"categories\":[\"C\"]}",
+                "{\"title\":\"No Authors\",\"isbn\":\"IMP-3\",\"totalCopies\":1,\"authors\":[],\"categories\":[\"C\"]}");
+
+        assertThat(report.getProcessed()).isEqualTo(5);
+        assertThat(report.getInserted()).isEqualTo(1);
+        assertThat(report.getUpdated()).isEqualTo(1);
+        assertThat(report.getFailed()).isEqualTo(3);
+        assertThat(report.getErrors()).extracting(BookImportError::getLine).containsExactly(3L, 5L, 6L);
+
+        Book inserted = bookRepository.findByIsbn("IMP-2").orElseThrow();
+        assertThat(inserted.getPublicationDate()).isEqualTo(LocalDate.of(2001, 2, 3));
+        assertThat(inserted.getAvailableCopies()).isEqualTo(3);
+        assertThat(linkedNames("book_authors", "authors", "author_id", inserted.getId()))
+                .containsExactlyInAnyOrder("Existing Author", "New Author");
+        assertThat(linkedNames("book_categories", "categories", "category_id", inserted.getId()))
+                .containsExactly("Existing Category");
+
+        // Copies move by the difference, the lent one stays lent; links are replaced
+        Book updated = bookRepository.findByIsbn("IMP-1").orElseThrow();
+        assertThat(updated.getTitle()).isEqualTo("New Title");
+        assertThat(updated.getTotalCopies()).isEqualTo(5);
+        assertThat(updated.getAvailableCopies()).isEqualTo(4);
+        assertThat(linkedNames("book_authors", "authors", "author_id", updated.getId()))
+                .containsExactly("New Author");
+        assertThat(linkedNames("book_categories", "categories", "category_id", updated.getId()))
+                .containsExactly("New Category");
+
+        // Names that already exist are reused
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM authors WHERE name IN ('Existing Author', 'New Author')", Long.class))
+                .isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM categories WHERE name IN ('Existing Category', 'New Category')", Long.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void shouldImportAcrossChunksAndIsolateRowsTheDatabaseRejects() {
+        String tooLongCategory = "C".repeat(300);
+        String[] lines = IntStream.rangeClosed(1, 1_200)
+                .mapToObj(i -> "{\"title\":\"Bulk " + i + "\",\"isbn\":\"BULK-" + i + "\",\"totalCopies\":1," +
+                        "\"authors\":[\"Bulk Author\"],\"categories\":[\"" +
+                        (i == 700 ? tooLongCategory : "Bulk Category") + "\"]}")
+                .toArray(String[]::new);
+
+        BookImportReport report = importLines(lines);
+
+        assertThat(report.getProcessed()).isEqualTo(1_200);
+        assertThat(report.getInserted()).isEqualTo(1_199);
+        assertThat(report.getFailed()).isEqualTo(1);
+        assertThat(report.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getLine()).isEqualTo(700);
+            assertThat(error.getIsbn()).isEqualTo("BULK-700");
+        });
+        assertThat(bookRepository.existsByIsbn("BULK-700")).isFalse();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM authors WHERE name = 'Bulk Author'", Long.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM book_categories bc JOIN categories c ON c.id = bc.category_id " +
+                        "WHERE c.name = 'Bulk Category'", Long.class)).isEqualTo(1_199);
+    }
+
+    @Test
+    void shouldCapReportedErrors() {
+        String[] lines = IntStream.range(0, 150).mapToObj(i -> "{}").toArray(String[]::new);
+
+        BookImportReport report = importLines(lines);
+
+        assertThat(report.getFailed()).isEqualTo(150);
+        assertThat(report.getErrors()).hasSize(100);
+        assertThat(report.isErrorsTruncated()).isTrue();
+    }
+
+    private BookImportReport importLines(String... lines) {
+        byte[] ndjson = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return bookImportService.importBooks(new ByteArrayInputStream(ndjson));
+    }
+
+    private Set<String> linkedNames(String joinTable, String table, String column, Long bookId) {
+        return jdbcTemplate.queryForList("SELECT t.name FROM " + joinTable + " j JOIN " + table + " t " +
+                        "ON t.id = j." + column + " WHERE j.book_id = ?", String.class, bookId)
+                .stream()
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,451 @@
+package org.dnu.novomlynov.library.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.config.LendingConfigurationProperties;
+import org.dnu.novomlynov.library.dto.BatchIssueRequest;
+import org.dnu.novomlynov.library.dto.BatchLendingItem;
+import org.dnu.novomlynov.library.dto.BatchLendingResult;
+import org.dnu.novomlynov.library.dto.BatchReturnRequest;
+import org.dnu.novomlynov.library.dto.BookDto;
+import org.dnu.novomlynov.library.dto.BookLendingDto;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.LendingStatus;
+import org.dnu.novomlynov.library.model.Subscriber;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.SubscriberRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles("test")
+class BookLendingServiceTest {
+    private static final int THREADS = 64;
+    private static final int COPIES = 20;
+
+    @Autowired
+    private BookLendingService bookLendingService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private LendingConfigurationProperties lendingConfigurationProperties;
+
+    private Book book;
+    private Subscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        book = bookRepository.save(Book.builder()
+                .title("Popular Title")
+                .isbn("9780000000999")
+                .totalCopies(COPIES)
+                .availableCopies(COPIES)
+                .build());
+        subscriber = subscriberRepository.save(Subscriber.builder()
+                .name("Reader")
+                .email("reader@example.com")
+                .libraryCardNumber("LC-CONCURRENT")
+                .active(true)
+                .build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookLendingRepository.deleteAll();
+        bookRepository.deleteAll();
+        subscriberRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentIssuesShouldNeverOversellCopies() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<BookLendingDto> issued = runConcurrently(() -> {
+            try {
+                return bookLendingService.issueBook(lendingRequest());
+            } catch (IllegalStateException e) {
+                rejected.incrementAndGet();
+                return null;
+            }
+        });
+
+        assertThat(issued).hasSize(COPIES);
+        assertThat(rejected.get()).isEqualTo(THREADS - COPIES);
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isZero();
+        assertThat(bookLendingRepository.findByBookIdAndStatus(book.getId(), LendingStatus.ISSUED)).hasSize(COPIES);
+    }
+
+    @Test
+    void concurrentBookUpdatesShouldNeverOverwriteIssuedCopies() throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // A quarter of the threads edit the book, a quarter raise its total, the rest issue copies
+        List<BookLendingDto> issued = runConcurrently(() -> {
+            switch (next.getAndIncrement() % 4) {
+                case 0 -> bookService.updateBook(book.getId(), BookDto.builder()
+                        .title("Edited Title")
+                        .isbn(book.getIsbn())
+                        .build());
+                case 1 -> bookService.updateBookCopies(book.getId(), 2 * COPIES);
+                default -> {
+                    try {
+                        return bookLendingService.issueBook(lendingRequest());
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }
+            return null;
+        });
+
+        Book updated = bookRepository.findById(book.getId()).orElseThrow();
+        assertThat(issued.size() + rejected.get()).isEqualTo(THREADS / 2);
+        assertThat(updated.getTitle()).isEqualTo("Edited Title");
+        assertThat(updated.getTotalCopies()).isEqualTo(2 * COPIES);
+        assertThat(updated.getAvailableCopies()).isEqualTo(2 * COPIES - issued.size());
+        assertThat(bookLendingRepository.findByBookIdAndStatus(book.getId(), LendingStatus.ISSUED))
+                .hasSize(issued.size());
+    }
+
+    @Test
+    void concurrentReturnsShouldRestoreEveryCopyExactlyOnce() throws Exception {
+        List<Long> lendingIds = new ArrayList<>();
+        for (int i = 0; i < COPIES; i++) {
+            lendingIds.add(bookLendingService.issueBook(lendingRequest()).getId());
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // Every lending is returned from several threads at once
+        List<BookLendingDto> returned = runConcurrently(() -> {
+            try {
+                return bookLendingService.returnBook(lendingIds.get(next.getAndIncrement() % COPIES));
+            } catch (IllegalStateException e) {
+                rejected.incrementAndGet();
+                return null;
+            }
+        });
+
+        assertThat(returned).hasSize(COPIES);
+        assertThat(rejected.get()).isEqualTo(THREADS - COPIES);
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isEqualTo(COPIES);
+        assertThat(activeLoans()).isZero();
+    }
+
+    @Test
+    void concurrentIssuesShouldNeverExceedTheLoanLimit() throws Exception {
+        int limit = lendingConfigurationProperties.getMaxActiveLoans();
+        Book plentiful = book("9780000001400", THREADS);
+        List<String> rejections = new CopyOnWriteArrayList<>();
+
+        List<BookLendingDto> issued = runConcurrently(() -> {
+            try {
+                return bookLendingService.issueBook(BookLendingDto.builder()
+                        .bookId(plentiful.getId())
+                        .subscriberId(subscriber.getId())
+                        .dueDate(LocalDate.now().plusDays(14))
+                        .build());
+            } catch (IllegalStateException e) {
+                rejections.add(e.getMessage());
+                return null;
+            }
+        });
+
+        assertThat(issued).hasSize(limit);
+        assertThat(rejections).hasSize(THREADS - limit)
+                .containsOnly("Subscriber has reached the limit of " + limit + " active loans");
+        assertThat(activeLoans()).isEqualTo(limit);
+        // Rejected issues never take a copy
+        assertThat(bookRepository.findById(plentiful.getId()).orElseThrow().getAvailableCopies())
+                .isEqualTo(THREADS - limit);
+
+        bookLendingService.returnBook(issued.get(0).getId());
+        bookLendingService.deleteBookLending(issued.get(1).getId());
+        assertThat(activeLoans()).isEqualTo(limit - 2);
+    }
+
+    @Test
+    void batchIssueShouldKeepTheEarliestBooksWithinTheLoanLimit() {
+        int limit = lendingConfigurationProperties.getMaxActiveLoans();
+        Book plentiful = book("9780000001500", limit);
+        for (int i = 0; i < limit - 1; i++) {
+            bookLendingService.issueBook(BookLendingDto.builder()
+                    .bookId(plentiful.getId())
+                    .subscriberId(subscriber.getId())
+                    .dueDate(LocalDate.now().plusDays(14))
+                    .build());
+        }
+        Long other = book("9780000001600", 1).getId();
+
+        BatchLendingResult result = bookLendingService.issueBooks(BatchIssueRequest.builder()
+                .subscriberId(subscriber.getId())
+                .bookIds(List.of(other, book.getId()))
+                .dueDate(LocalDate.now().plusDays(14))
+                .build());
+
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        assertThat(result.getItems()).extracting(BatchLendingItem::getError)
+                .containsExactly(null, "Subscriber has reached the limit of " + limit + " active loans");
+        assertThat(activeLoans()).isEqualTo(limit);
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isEqualTo(COPIES);
+    }
+
+    @Test
+    void issueShouldFailWhenNoCopiesAreLeft() {
+        for (int i = 0; i < COPIES; i++) {
+            bookLendingService.issueBook(lendingRequest());
+        }
+
+        assertThrows(IllegalStateException.class, () -> bookLendingService.issueBook(lendingRequest()));
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isZero();
+    }
+
+    @Test
+    void exportShouldStreamEveryLendingOfThePeriodInOneQuery() throws Exception {
+        for (int i = 0; i < COPIES; i++) {
+            bookLendingService.issueBook(lendingRequest());
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookLendingService.exportLendings(LocalDate.now(), LocalDate.now().plusDays(1), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(COPIES);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("book").get("title").asText()).isEqualTo("Popular Title");
+        assertThat(first.get("subscriber").get("name").asText()).isEqualTo("Reader");
+        // Book and subscriber come with the lendings, nothing is loaded lazily
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        bookLendingService.exportLendings(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), empty);
+        assertThat(empty.size()).isZero();
+    }
+
+    @Test
+    void batchIssueShouldReportEveryItemWithAFixedNumberOfStatements() {
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            bookIds.add(book("97800000011" + i, 1).getId());
+        }
+        bookIds.add(book.getId());
+        Long unavailable = book("9780000001200", 0).getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Long> requested = new ArrayList<>(bookIds);
+        requested.addAll(List.of(unavailable, -1L, book.getId()));
+        BatchLendingResult result = bookLendingService.issueBooks(BatchIssueRequest.builder()
+                .subscriberId(subscriber.getId())
+                .bookIds(requested)
+                .dueDate(LocalDate.now().plusDays(14))
+                .build());
+
+        // subscriber, reservation, existing books, reserved books, lending ids, one insert batch and the loans
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(7);
+        assertThat(result.getSucceeded()).isEqualTo(10);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getItems()).extracting(BatchLendingItem::getId).containsExactlyElementsOf(requested);
+        assertThat(result.getItems().get(9).getLending().getBook().getTitle()).isEqualTo("Popular Title");
+        assertThat(result.getItems().subList(10, 13)).extracting(BatchLendingItem::getError).containsExactly(
+                "No available copies for this book",
+                "Book not found with id: -1",
+                "Listed more than once in this batch");
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isEqualTo(COPIES - 1);
+        assertThat(bookRepository.findById(bookIds.get(0)).orElseThrow().getAvailableCopies()).isZero();
+        assertThat(bookLendingRepository.findBySubscriberId(subscriber.getId())).hasSize(10);
+        assertThat(activeLoans()).isEqualTo(10);
+    }
+
+    @Test
+    void batchIssueShouldFailAsAWholeForAnInactiveSubscriber() {
+        subscriber.setActive(false);
+        subscriberRepository.save(subscriber);
+
+        assertThrows(IllegalStateException.class, () -> bookLendingService.issueBooks(BatchIssueRequest.builder()
+                .subscriberId(subscriber.getId())
+                .bookIds(List.of(book.getId()))
+                .dueDate(LocalDate.now().plusDays(14))
+                .build()));
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isEqualTo(COPIES);
+    }
+
+    @Test
+    void batchReturnShouldReportEveryItemAndReleaseEachCopyOnce() {
+        List<Long> lendingIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            lendingIds.add(bookLendingService.issueBook(lendingRequest()).getId());
+        }
+        bookLendingService.returnBook(lendingIds.get(2));
+
+        List<Long> requested = List.of(lendingIds.get(0), lendingIds.get(1), lendingIds.get(0), lendingIds.get(2), -1L);
+        BatchLendingResult result = bookLendingService.returnBooks(BatchReturnRequest.builder()
+                .lendingIds(requested)
+                .build());
+
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getItems()).extracting(BatchLendingItem::getError).containsExactly(
+                null,
+                null,
+                "Listed more than once in this batch",
+                "Book is already returned",
+                "Lending record not found with id: -1");
+        assertThat(result.getItems().get(0).getLending().getStatus()).isEqualTo(LendingStatus.RETURNED);
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isEqualTo(COPIES);
+        assertThat(bookLendingRepository.findByBookIdAndStatus(book.getId(), LendingStatus.RETURNED)).hasSize(3);
+        assertThat(activeLoans()).isZero();
+    }
+
+    @Test
+    void concurrentBatchIssuesShouldNeverOversellOrDeadlock() throws Exception {
+        Book other = book("9780000001300", COPIES);
+        AtomicInteger next = new AtomicInteger();
+
+        // Half of the batches list the books in the opposite order
+        List<BatchLendingResult> results = runConcurrently(() -> bookLendingService.issueBooks(
+                BatchIssueRequest.builder()
+                        .subscriberId(subscriber.getId())
+                        .bookIds(next.getAndIncrement() % 2 == 0
+                                ? List.of(book.getId(), other.getId())
+                                : List.of(other.getId(), book.getId()))
+                        .dueDate(LocalDate.now().plusDays(14))
+                        .build()));
+
+        assertThat(results).hasSize(THREADS);
+        assertThat(results.stream().mapToInt(BatchLendingResult::getSucceeded).sum()).isEqualTo(2 * COPIES);
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isZero();
+        assertThat(bookRepository.findById(other.getId()).orElseThrow().getAvailableCopies()).isZero();
+        assertThat(bookLendingRepository.findByBookIdAndStatus(other.getId(), LendingStatus.ISSUED)).hasSize(COPIES);
+        assertThat(activeLoans()).isEqualTo(2 * COPIES);
+    }
+
+    @Test
+    void concurrentBatchReturnsMixingSingleAndRepeatedBooksShouldNotDeadlock() throws Exception {
+        Book other = book("9780000001400", COPIES);
+        int batches = 2 * (COPIES / 3);
+        // Every batch has a subscriber of its own, so only the book rows order the batches. Even batches return
+        // two copies of the first book and one of the other, odd batches the other way round
+        List<List<Long>> lendingIds = new ArrayList<>();
+        for (int i = 0; i < batches; i++) {
+            Subscriber reader = subscriberRepository.save(Subscriber.builder()
+                    .name("Batch Reader " + i)
+                    .email("batch-reader-" + i + "@example.com")
+                    .libraryCardNumber("LC-BATCH-" + i)
+                    .active(true)
+                    .build());
+            Book twice = i % 2 == 0 ? book : other;
+            Book once = i % 2 == 0 ? other : book;
+            List<Long> ids = new ArrayList<>();
+            for (Book lent : List.of(twice, twice, once)) {
+                ids.add(bookLendingService.issueBook(BookLendingDto.builder()
+                        .bookId(lent.getId())
+                        .subscriberId(reader.getId())
+                        .dueDate(LocalDate.now().plusDays(14))
+                        .build()).getId());
+            }
+            lendingIds.add(ids);
+        }
+        AtomicInteger next = new AtomicInteger();
+
+        List<BatchLendingResult> results = runConcurrently(() -> {
+            int batch = next.getAndIncrement();
+            return batch < batches ? bookLendingService.returnBooks(BatchReturnRequest.builder()
+                    .lendingIds(lendingIds.get(batch))
+                    .build()) : null;
+        });
+
+        assertThat(results).hasSize(batches);
+        assertThat(results).allSatisfy(result -> assertThat(result.getSucceeded()).isEqualTo(3));
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies()).isEqualTo(COPIES);
+        assertThat(bookRepository.findById(other.getId()).orElseThrow().getAvailableCopies()).isEqualTo(COPIES);
+    }
+
+    private Book book(String isbn, int copies) {
+        return bookRepository.save(Book.builder()
+                .title("Title " + isbn)
+                .isbn(isbn)
+                .totalCopies(Math.max(copies, 1))
+                .availableCopies(copies)
+                .build());
+    }
+
+    private int activeLoans() {
+        return subscriberRepository.findById(subscriber.getId()).orElseThrow().getActiveLoans();
+    }
+
+    private BookLendingDto lendingRequest() {
+        return BookLendingDto.builder()
+                .bookId(book.getId())
+                .subscriberId(subscriber.getId())
+                .dueDate(LocalDate.now().plusDays(14))
+                .build();
+    }
+
+    private <T> List<T> runConcurrently(Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                T result = future.get(60, TimeUnit.SECONDS);
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.dnu.novomlynov.library.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.dto.BookDto;
+import org.dnu.novomlynov.library.dto.CursorPage;
+import org.dnu.novomlynov.library.exception.ResourceNotFoundException;
+import org.dnu.novomlynov.library.model.Author;
+import org.dnu.novomlynov.library.model.Category;
+import org.dnu.novomlynov.library.repository.AuthorRepository;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.CategoryRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles("test")
+@Transactional
+class BookServiceTest {
+
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private List<Author> authors;
+    private List<Category> categories;
+
+    @BeforeEach
+    void setUp() {
+        bookLendingRepository.deleteAll();
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        categoryRepository.deleteAll();
+        authors = authorRepository.saveAll(IntStream.range(0, 8)
+                .mapToObj(i -> Author.builder().name("Resolved Author " + i).build())
+                .toList());
+        categories = categoryRepository.saveAll(IntStream.range(0, 5)
+                .mapToObj(i -> Category.builder().name("Resolved Category " + i).build())
+                .toList());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldResolveAuthorsAndCategoriesWithoutAQueryPerId() {
+        // given - a warm-up book, so that the book id pool is already allocated
+        bookService.createBook(book("RES-0", authorIds(1), categoryIds(1)));
+        entityManager.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        long singleReference = statementsToCreate(statistics, book("RES-1", authorIds(1), categoryIds(1)));
+        long manyReferences = statementsToCreate(statistics, book("RES-2", authorIds(8), categoryIds(5)));
+
+        // then - the lookups and link inserts cost the same; one more is allowed for a new id pool
+        assertThat(manyReferences).isLessThanOrEqualTo(singleReference + 1);
+        BookDto created = bookService.getBookByIsbn("RES-2");
+        assertThat(created.getAuthorIds()).containsExactlyInAnyOrderElementsOf(authorIds(8));
+        assertThat(created.getCategoryIds()).containsExactlyInAnyOrderElementsOf(categoryIds(5));
+    }
+
+    @Test
+    void shouldResolveCachedAuthorsAndCategoriesWithoutASelect() {
+        // given - a first book loads every author and category into the second-level cache
+        bookService.createBook(book("RES-5", authorIds(8), categoryIds(5)));
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when
+        bookService.createBook(book("RES-6", authorIds(8), categoryIds(5)));
+        entityManager.flush();
+
+        // then
+        assertThat(statistics.getEntityStatistics(Author.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityStatistics(Category.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(13);
+        BookDto created = bookService.getBookByIsbn("RES-6");
+        assertThat(created.getAuthorIds()).containsExactlyInAnyOrderElementsOf(authorIds(8));
+        assertThat(created.getCategoryIds()).containsExactlyInAnyOrderElementsOf(categoryIds(5));
+    }
+
+    @Test
+    void shouldReportEveryMissingIdAtOnce() {
+        Set<Long> authorIds = Set.of(authors.get(0).getId(), -1L, -2L);
+        Set<Long> categoryIds = Set.of(categories.get(0).getId(), -3L);
+
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
+                () -> bookService.createBook(book("RES-3", authorIds, categoryIds)));
+
+        assertThat(exception.getMessage())
+                .isEqualTo("Authors not found with ids: [-2, -1]; Categories not found with ids: [-3]");
+        assertThat(bookRepository.existsByIsbn("RES-3")).isFalse();
+    }
+
+    @Test
+    void shouldReplaceOnlyTheProvidedReferencesOnUpdate() {
+        BookDto created = bookService.createBook(book("RES-4", authorIds(2), categoryIds(2)));
+
+        BookDto update = book("RES-4", authorIds(3), null);
+        BookDto updated = bookService.updateBook(created.getId(), update);
+
+        assertThat(updated.getAuthorIds()).containsExactlyInAnyOrderElementsOf(authorIds(3));
+        assertThat(updated.getCategoryIds()).containsExactlyInAnyOrderElementsOf(categoryIds(2));
+        assertThrows(ResourceNotFoundException.class,
+                () -> bookService.updateBook(created.getId(), book("RES-4", Set.of(-1L), null)));
+    }
+
+    @Test
+    void shouldPageThroughSearchResultsAndRejectATamperedCursor() {
+        List<Long> created = IntStream.range(0, 3)
+                .mapToObj(i -> bookService.createBook(book("RES-SEARCH-" + i, authorIds(1), categoryIds(1))).getId())
+                .toList();
+
+        // Equal ranks, so every page boundary goes through the rank and id comparison of the cursor
+        List<Long> found = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<BookDto> page = bookService.searchBooks("resolved", cursor, 1);
+            page.getContent().forEach(book -> found.add(book.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(found).containsExactlyInAnyOrderElementsOf(created);
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString("high".getBytes())
+                + "." + Base64.getUrlEncoder().withoutPadding().encodeToString("1".getBytes());
+        assertThrows(IllegalArgumentException.class, () -> bookService.searchBooks("resolved", tampered, 1));
+    }
+
+    private long statementsToCreate(Statistics statistics, BookDto book) {
+        entityManager.clear();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        bookService.createBook(book);
+        entityManager.flush();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static BookDto book(String isbn, Set<Long> authorIds, Set<Long> categoryIds) {
+        return BookDto.builder()
+                .title("Book " + isbn)
+                .isbn(isbn)
+                .totalCopies(1)
+                .authorIds(authorIds)
+                .categoryIds(categoryIds)
+                .build();
+    }
+
+    private Set<Long> authorIds(int count) {
+        return authors.stream().limit(count).map(Author::getId).collect(Collectors.toSet());
+    }
+
+    private Set<Long> categoryIds(int count) {
+        return categories.stream().limit(count).map(Category::getId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,123 @@
+package org.dnu.novomlynov.library.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.dto.AuthorDto;
+import org.dnu.novomlynov.library.model.Author;
+import org.dnu.novomlynov.library.model.Book;
+import org.dnu.novomlynov.library.model.Category;
+import org.dnu.novomlynov.library.repository.AuthorRepository;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.BookRepository;
+import org.dnu.novomlynov.library.repository.CategoryRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles("test")
+class CatalogCacheTest {
+
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private BookImportService bookImportService;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+    private Author author;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        author = authorRepository.save(Author.builder().name("Cached Author").build());
+        Category category = categoryRepository.save(Category.builder().name("Cached Category").build());
+        bookRepository.save(Book.builder()
+                .title("Cached Book")
+                .isbn("CACHE-1")
+                .totalCopies(1)
+                .availableCopies(1)
+                .authors(Set.of(author))
+                .categories(Set.of(category))
+                .build());
+
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookLendingRepository.deleteAll();
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void shouldServeRepeatedAuthorReadsFromTheCache() {
+        authorService.getAuthorById(author.getId());
+        authorService.getAuthorById(author.getId());
+
+        assertThat(statistics.getSecondLevelCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSeeAuthorUpdatesAfterTheyAreCached() {
+        authorService.getAuthorById(author.getId());
+
+        authorService.updateAuthor(author.getId(), AuthorDto.builder().name("Renamed Author").build());
+
+        assertThat(authorService.getAuthorById(author.getId()).getName()).isEqualTo("Renamed Author");
+    }
+
+    @Test
+    void shouldSeeLinksReplacedByTheImport() {
+        assertThat(authorNames("CACHE-1")).containsExactly("Cached Author");
+        assertThat(authorNames("CACHE-1")).containsExactly("Cached Author");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+
+        // The import rewrites the links with plain SQL
+        byte[] row = ("{\"title\":\"Cached Book\",\"isbn\":\"CACHE-1\",\"totalCopies\":1," +
+                "\"authors\":[\"Imported Author\"],\"categories\":[\"Cached Category\"]}")
+                .getBytes(StandardCharsets.UTF_8);
+        bookImportService.importBooks(new ByteArrayInputStream(row));
+
+        assertThat(authorNames("CACHE-1")).containsExactly("Imported Author");
+    }
+
+    private Set<String> authorNames(String isbn) {
+        return transactionTemplate.execute(status -> {
+            Set<String> names = new HashSet<>();
+            bookRepository.findByIsbn(isbn).orElseThrow().getAuthors().forEach(linked -> names.add(linked.getName()));
+            return names;
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package org.dnu.novomlynov.library.service;
+
+import org.dnu.novomlynov.library.TestcontainersConfiguration;
+import org.dnu.novomlynov.library.dto.CursorPage;
+import org.dnu.novomlynov.library.dto.SubscriberDto;
+import org.dnu.novomlynov.library.model.Subscriber;
+import org.dnu.novomlynov.library.repository.BookLendingRepository;
+import org.dnu.novomlynov.library.repository.SubscriberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Import({TestcontainersConfiguration.class})
+@ActiveProfiles("test")
+@Transactional
+class SubscriberServiceTest {
+
+    @Autowired
+    private SubscriberService subscriberService;
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+    @Autowired
+    private BookLendingRepository bookLendingRepository;
+
+    private List<Subscriber> subscribers;
+
+    @BeforeEach
+    void setUp() {
+        bookLendingRepository.deleteAll();
+        subscriberRepository.deleteAll();
+        subscribers = new ArrayList<>();
+        // Names repeat, so only the id tells rows with the same name apart
+        for (int i = 0; i < 25; i++) {
+            subscribers.add(subscriberRepository.save(Subscriber.builder()
+                    .name("Reader " + (char) ('A' + i % 4))
+                    .email("reader" + i + "@example.com")
+                    .libraryCardNumber("LC-SCROLL-" + i)
+                    .active(true)
+                    .build()));
+        }
+    }
+
+    @Test
+    void shouldScrollThroughEverySubscriberOnceByNameAndId() {
+        // when
+        List<Long> seen = scrollAll(Sort.by("name").descending());
+
+        // then
+        List<Long> expected = subscribers.stream()
+                .sorted(Comparator.comparing(Subscriber::getName).thenComparing(Subscriber::getId).reversed())
+                .map(Subscriber::getId)
+                .toList();
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void shouldScrollByIdByDefault() {
+        // when
+        List<Long> seen = scrollAll(Sort.by("id").ascending());
+
+        // then
+        assertThat(seen).containsExactlyElementsOf(subscribers.stream().map(Subscriber::getId).toList());
+    }
+
+    @Test
+    void shouldRejectUnknownSortColumnsAndForeignCursors() {
+        CursorPage<SubscriberDto> byName = subscriberService.scrollSubscribers(null, 10, Sort.by("name"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriberService.scrollSubscribers(null, 10, Sort.by("email")));
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriberService.scrollSubscribers(byName.getNextCursor(), 10, Sort.by("id")));
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriberService.scrollSubscribers("not-a-cursor", 10, Sort.by("name")));
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriberService.scrollSubscribers(null, 0, Sort.by("name")));
+    }
+
+    private List<Long> scrollAll(Sort sort) {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        CursorPage<SubscriberDto> page;
+        do {
+            page = subscriberService.scrollSubscribers(cursor, 10, sort);
+            assertThat(page.getContent()).hasSizeLessThanOrEqualTo(10);
+            page.getContent().forEach(subscriber -> seen.add(subscriber.getId()));
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+        return seen;
+    }
+}